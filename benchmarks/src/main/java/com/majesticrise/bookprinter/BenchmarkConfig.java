@@ -0,0 +1,56 @@
+package com.majesticrise.bookprinter;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+// 从插件 jar 中读取默认的 config.yml 与语言文件, 基准测试使用与发布版本相同的默认配置
+final class BenchmarkConfig {
+
+    private BenchmarkConfig() {}
+
+    static YamlConfiguration defaults() {
+        return load("/config.yml");
+    }
+
+    // 与插件相同: 语言文件放入数据目录后经 LanguageManager.load 加载
+    static LanguageManager language(String code) {
+        try {
+            Path folder = Files.createTempDirectory("bookprinter-bench");
+            for (String bundled : new String[]{"Language-en_US.yml", "Language-zh_CN.yml"}) {
+                try (InputStream in = TextUtils.class.getResourceAsStream("/" + bundled)) {
+                    if (in == null) throw new IllegalStateException("Missing resource /" + bundled);
+                    Files.copy(in, folder.resolve(bundled));
+                }
+            }
+            LanguageManager manager = new LanguageManager(Logger.getLogger("BookPrinter"));
+            manager.load(folder.toFile(), code, false);
+            // 消息在加载时已全部编译, 之后不再读取文件
+            for (String bundled : new String[]{"Language-en_US.yml", "Language-zh_CN.yml"}) {
+                Files.delete(folder.resolve(bundled));
+            }
+            Files.delete(folder);
+            return manager;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static YamlConfiguration load(String resource) {
+        try (InputStream in = TextUtils.class.getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException("Missing resource " + resource);
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return YamlConfiguration.loadConfiguration(reader);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.majesticrise.bookprinter;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// 基准测试入口: 接受 JMH 的全部命令行参数, 并始终附加 GC 分析器以报告每次操作的分配量.
+// 与基线比较: java -jar target/benchmarks.jar -rf json -rff result.json, 再对比两次的 JSON 结果
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
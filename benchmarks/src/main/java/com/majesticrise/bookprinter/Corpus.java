@@ -0,0 +1,105 @@
+package com.majesticrise.bookprinter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+// 基准测试语料: 以固定种子生成, 同一参数在不同版本间得到完全相同的文本, 便于与基线比较
+public enum Corpus {
+
+    // 英文散文, 段落间空行, 偶尔插入 ---PAGE--- 分页标记
+    ASCII_PROSE {
+        @Override
+        void appendUnit(StringBuilder sb, SplittableRandom random) {
+            appendSentence(sb, random);
+            paragraphBreak(sb, random, "\n\n");
+        }
+    },
+
+    // 中文小说: 常用汉字区间随机取字, 全角标点与段首缩进
+    CJK_NOVEL {
+        @Override
+        void appendUnit(StringBuilder sb, SplittableRandom random) {
+            int len = 8 + random.nextInt(24);
+            for (int i = 0; i < len; i++) {
+                sb.append((char) (0x4E00 + random.nextInt(0x51A5)));
+            }
+            sb.append(random.nextInt(4) == 0 ? '。' : '，');
+            paragraphBreak(sb, random, "\n　　");
+        }
+    },
+
+    // 颜色代码密集: 几乎每个单词前都有 & 代码, 夹杂 &#RRGGBB
+    COLOR_DENSE {
+        @Override
+        void appendUnit(StringBuilder sb, SplittableRandom random) {
+            int words = 4 + random.nextInt(8);
+            for (int i = 0; i < words; i++) {
+                if (random.nextInt(4) == 0) {
+                    sb.append("&#").append(hex(random));
+                } else {
+                    sb.append('&').append(CODES.charAt(random.nextInt(CODES.length())));
+                }
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            sb.append("&r.");
+            paragraphBreak(sb, random, "\n");
+        }
+    },
+
+    // Modern 模式: 大量 MiniMessage 渐变标签, 使用 \n 与 \Line-break\ 控制排版
+    GRADIENT_MINIMESSAGE {
+        @Override
+        void appendUnit(StringBuilder sb, SplittableRandom random) {
+            sb.append("<gradient:#").append(hex(random)).append(":#").append(hex(random)).append('>');
+            appendSentence(sb, random);
+            sb.append("</gradient>");
+            if (random.nextInt(3) == 0) sb.append(" <b>").append(WORDS[random.nextInt(WORDS.length)]).append("</b>");
+            if (random.nextInt(3) == 0) sb.append(" &a").append(WORDS[random.nextInt(WORDS.length)]);
+            sb.append(random.nextInt(4) == 0 ? "\\n\n" : " ");
+            if (random.nextInt(12) == 0) sb.append("\\Line-break\\\n");
+        }
+    };
+
+    private static final long SEED = 0x426F6F6B5072696EL;
+    private static final String CODES = "0123456789abcdeflo";
+    private static final String[] WORDS = {
+            "the", "old", "lighthouse", "keeper", "watched", "storm", "gather", "over", "grey", "sea",
+            "and", "wrote", "each", "night", "in", "a", "leather", "journal", "that", "smelled",
+            "of", "salt", "candle", "wax", "ships", "passed", "without", "knowing", "his", "name"
+    };
+
+    abstract void appendUnit(StringBuilder sb, SplittableRandom random);
+
+    // 生成 UTF-8 编码后不少于 bytes 字节的文本
+    public String generate(int bytes) {
+        SplittableRandom random = new SplittableRandom(SEED ^ ordinal());
+        StringBuilder sb = new StringBuilder(bytes);
+        int encoded = 0;
+        while (encoded < bytes) {
+            int from = sb.length();
+            appendUnit(sb, random);
+            encoded += sb.substring(from).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return sb.toString();
+    }
+
+    private static void appendSentence(StringBuilder sb, SplittableRandom random) {
+        int words = 6 + random.nextInt(14);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sb.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        sb.append(". ");
+    }
+
+    private static void paragraphBreak(StringBuilder sb, SplittableRandom random, String separator) {
+        if (random.nextInt(5) != 0) return;
+        sb.append(separator);
+        if (random.nextInt(30) == 0) sb.append("---PAGE---\n");
+    }
+
+    private static String hex(SplittableRandom random) {
+        return String.format("%06X", random.nextInt(0x1000000));
+    }
+}
@@ -0,0 +1,49 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LanguageBenchmark {
+
+    @Param({"en_US", "zh_CN"})
+    public String language;
+
+    private LanguageManager manager;
+    private final Map<String, String> placeholders = Map.of("file", "the_old_lighthouse.txt", "pages", "42");
+    // 值中带颜色代码时整条消息按旧方式解析
+    private final Map<String, String> colouredPlaceholders = Map.of("file", "§6the_old_lighthouse.txt", "pages", "42");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkConfig.language(language);
+    }
+
+    @Benchmark
+    public String getRaw() {
+        return manager.getRaw("success");
+    }
+
+    @Benchmark
+    public String getRawWithPlaceholders() {
+        return manager.getRaw("success_detail", placeholders);
+    }
+
+    @Benchmark
+    public Component getWithPlaceholders() {
+        return manager.get("success_detail", placeholders);
+    }
+
+    @Benchmark
+    public Component getWithColouredPlaceholders() {
+        return manager.get("success_detail", colouredPlaceholders);
+    }
+}
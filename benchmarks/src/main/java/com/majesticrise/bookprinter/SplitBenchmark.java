@@ -0,0 +1,38 @@
+package com.majesticrise.bookprinter;
+
+import org.bukkit.ChatColor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class SplitBenchmark {
+
+    @Param({"smart", "lines", "hard", "marker", "width"})
+    public String strategy;
+
+    @Param({"ASCII_PROSE", "CJK_NOVEL", "COLOR_DENSE"})
+    public Corpus corpus;
+
+    @Param({"10240", "512000", "2097152"})
+    public int size;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = ChatColor.translateAlternateColorCodes('&', corpus.generate(size));
+    }
+
+    // 参数与 config.yml 中 classic 的默认值一致
+    @Benchmark
+    public List<String> splitToPagesSafe() {
+        return TextUtils.splitToPagesSafe(text, 165, strategy, "---PAGE---", 14, true, false);
+    }
+}
@@ -0,0 +1,60 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class TextPipelineBenchmark {
+
+    @Param({"ASCII_PROSE", "CJK_NOVEL", "COLOR_DENSE", "GRADIENT_MINIMESSAGE"})
+    public Corpus corpus;
+
+    @Param({"10240", "512000", "2097152"})
+    public int size;
+
+    private String text;
+    private int halfCodePoints;
+    private Settings settings;
+    private List<Component> modernPages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = corpus.generate(size);
+        halfCodePoints = text.codePointCount(0, text.length()) / 2;
+        settings = Settings.from(BenchmarkConfig.defaults());
+        modernPages = TextUtils.parseModernMode(text, settings, PageRenderer.SEQUENTIAL);
+    }
+
+    @Benchmark
+    public List<Component> parseModernMode() {
+        return TextUtils.parseModernMode(text, settings, PageRenderer.SEQUENTIAL);
+    }
+
+    @Benchmark
+    public List<Component> parseClassicMode() {
+        return TextUtils.parseClassicMode(text, settings, PageRenderer.SEQUENTIAL);
+    }
+
+    @Benchmark
+    public List<Component> compactModernPages() {
+        return modernPages.stream().map(ComponentCompactor::compact).toList();
+    }
+
+    @Benchmark
+    public String parseClassicText() {
+        return ClassicText.parse(text).text();
+    }
+
+    @Benchmark
+    public String truncateByCodePoints() {
+        return TextUtils.truncateByCodePoints(text, halfCodePoints);
+    }
+}
@@ -0,0 +1,243 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// 离线批量编译: 不启动服务器, 按 config.yml 的设置在所有核心上并行分页渲染 TXT 文件,
+// 结果写入数据目录下的磁盘缓存 (与插件的 store 格式相同, 部署后首次打印直接命中), 并输出每个文件的 CSV 报告.
+// 用法: java -jar bookprinter-compiler.jar [--data 目录] [--config config.yml] [--report report.csv] [--threads N] <目录|glob>...
+public final class BatchCompiler {
+
+    private BatchCompiler() {}
+
+    private record Options(Path data, Path config, Path report, int threads, List<String> inputs) {}
+
+    private record Result(Path file, String status, long bytes, int pages,
+                          long readNanos, long paginateNanos, long renderNanos, String error) {}
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        if (options == null) {
+            System.err.println("Usage: java -jar bookprinter-compiler.jar [--data <dir>] [--config <config.yml>] "
+                    + "[--report <report.csv>] [--threads <n>] <dir|glob>...");
+            System.exit(2);
+            return;
+        }
+
+        Settings settings = Settings.from(loadConfig(options));
+        Logger logger = Logger.getLogger("BookPrinter");
+        BookStore store = new BookStore(options.data().toFile(), logger);
+        Path root = options.data().toRealPath();
+        List<Path> files = collect(options.inputs());
+        System.out.printf(Locale.ROOT, "Compiling %d files (%s mode, %d threads) into %s%n",
+                files.size(), settings.mode(), options.threads(), options.data().resolve(BookStore.DIRECTORY));
+
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(options.threads());
+        try {
+            List<Future<Result>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(executor.submit(() -> compile(file, root, settings, store)));
+            }
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        writeReport(options.report(), results);
+        long failed = results.stream().filter(r -> r.error() != null).count();
+        long pages = results.stream().mapToLong(Result::pages).sum();
+        System.out.printf(Locale.ROOT, "Done in %.1f ms: %d files, %d pages, %d failed. Report: %s%n",
+                elapsed / 1e6, results.size(), pages, failed, options.report());
+        if (failed > 0) System.exit(1);
+    }
+
+    private static Options parse(String[] args) {
+        Path data = null;
+        Path config = null;
+        Path report = Path.of("report.csv");
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+            switch (arg) {
+                case "--data" -> {
+                    if (!hasValue) return null;
+                    data = Path.of(args[++i]);
+                }
+                case "--config" -> {
+                    if (!hasValue) return null;
+                    config = Path.of(args[++i]);
+                }
+                case "--report" -> {
+                    if (!hasValue) return null;
+                    report = Path.of(args[++i]);
+                }
+                case "--threads" -> {
+                    if (!hasValue) return null;
+                    try {
+                        threads = Math.max(1, Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                default -> {
+                    if (arg.startsWith("--")) return null;
+                    inputs.add(arg);
+                }
+            }
+        }
+        if (inputs.isEmpty()) return null;
+        // 未指定数据目录时, 唯一的目录参数即为数据目录, 否则为当前目录
+        if (data == null) {
+            Path single = Path.of(inputs.get(0));
+            data = (inputs.size() == 1 && Files.isDirectory(single)) ? single : Path.of("");
+        }
+        return new Options(data.toAbsolutePath(), config, report, threads, inputs);
+    }
+
+    // 优先使用 --config, 其次是数据目录中的 config.yml, 最后是 jar 中的默认配置
+    private static YamlConfiguration loadConfig(Options options) throws IOException {
+        Path config = options.config() != null ? options.config() : options.data().resolve("config.yml");
+        if (Files.isRegularFile(config)) return YamlConfiguration.loadConfiguration(config.toFile());
+        if (options.config() != null) throw new IOException("Config file not found: " + config);
+
+        try (InputStream in = BatchCompiler.class.getResourceAsStream("/config.yml")) {
+            if (in == null) throw new IOException("Missing bundled config.yml");
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return YamlConfiguration.loadConfiguration(reader);
+            }
+        }
+    }
+
+    // 目录: 其中所有 .txt 文件 (含子目录); 含 * ? [ { 的参数按 glob 匹配; 其余视为单个文件
+    static List<Path> collect(List<String> inputs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (String input : inputs) {
+            int meta = firstGlobChar(input);
+            if (meta < 0) {
+                Path path = Path.of(input);
+                if (Files.isDirectory(path)) {
+                    walk(path, p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".txt"), files);
+                } else {
+                    files.add(path.toRealPath());
+                }
+                continue;
+            }
+            int sep = Math.max(input.lastIndexOf('/', meta), input.lastIndexOf(File.separatorChar, meta));
+            Path base = Path.of(sep >= 0 ? input.substring(0, sep + 1) : "");
+            PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + input);
+            walk(base, matcher::matches, files);
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static void walk(Path base, PathMatcher filter, TreeSet<Path> out) throws IOException {
+        try (Stream<Path> stream = Files.walk(base)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                if (Files.isRegularFile(path) && filter.matches(path)) out.add(path.toRealPath());
+            }
+        }
+    }
+
+    private static int firstGlobChar(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) return i;
+        }
+        return -1;
+    }
+
+    // 与插件的读取流程一致: 磁盘缓存仍然有效时跳过, 否则尽量从旧条目增量分页后写回
+    // 数据目录之外的文件同样编译并计入报告, 但插件不会读取它们的缓存
+    private static Result compile(Path file, Path root, Settings settings, BookStore store) {
+        long bytes = 0;
+        try {
+            bytes = Files.size(file);
+            if (bytes > settings.maxFileBytes()) {
+                // 插件对这类文件只做流式读取, 不使用缓存
+                return new Result(file, "too_large", bytes, 0, 0, 0, 0, null);
+            }
+
+            BookCache.Key key = BookCache.keyOf(file.toFile(), settings.mode(), settings);
+            long readStart = System.nanoTime();
+            Repagination.Compiled cached = store.load(key);
+            if (cached != null) {
+                return new Result(file, "cached", bytes, cached.pages().size(), System.nanoTime() - readStart, 0, 0, null);
+            }
+            BookCache.Snapshot snapshot = BookCache.read(key);
+            String content = BookStore.decodeUtf8(snapshot.bytes());
+            long paginateStart = System.nanoTime();
+
+            Repagination.Source text = Repagination.prepare(content, settings);
+            Repagination.Resume resume = store.loadPrevious(key, checkpoints -> Repagination.lastValid(text, checkpoints));
+            Repagination.Plan<?> plan = Repagination.paginate(text, settings, resume);
+            long renderStart = System.nanoTime();
+            // 文件之间已经并行, 单个文件内顺序渲染; 后处理与体积检查与插件一致
+            UnaryOperator<Component> finish = settings.network().compactComponents()
+                    ? ComponentCompactor::compact
+                    : UnaryOperator.identity();
+            Repagination.Compiled rendered = plan.render(PageRenderer.SEQUENTIAL, finish);
+            Repagination.Compiled compiled = Repagination.fit(text, settings, rendered, PageRenderer.SEQUENTIAL, finish);
+            long renderEnd = System.nanoTime();
+
+            String status;
+            if (snapshot.key() == null) {
+                // 编译期间文件一直在被改写, 结果不对应任何一个版本
+                status = "changed";
+            } else if (file.startsWith(root)) {
+                store.save(snapshot.key(), snapshot.bytes(), compiled);
+                status = (compiled != rendered) ? "reflowed" : (resume != null) ? "incremental" : "compiled";
+            } else {
+                status = "not_stored";
+            }
+            return new Result(file, status, bytes, compiled.pages().size(),
+                    paginateStart - readStart, renderStart - paginateStart, renderEnd - renderStart, null);
+        } catch (Exception e) {
+            String message = (e.getMessage() != null) ? e.getMessage() : e.getClass().getSimpleName();
+            return new Result(file, "failed", bytes, 0, 0, 0, 0, message);
+        }
+    }
+
+    private static void writeReport(Path report, List<Result> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            out.println("file,status,bytes,pages,read_ms,paginate_ms,render_ms,error");
+            for (Result r : results) {
+                out.printf(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f,%.3f,%s%n",
+                        csv(r.file().toString()), r.status(), r.bytes(), r.pages(),
+                        r.readNanos() / 1e6, r.paginateNanos() / 1e6, r.renderNanos() / 1e6,
+                        r.error() != null ? csv(r.error()) : "");
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
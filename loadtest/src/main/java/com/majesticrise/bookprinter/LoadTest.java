@@ -0,0 +1,376 @@
+package com.majesticrise.bookprinter;
+
+import org.bukkit.command.CommandSender;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+// 端到端并发压测: 在 MockBukkit 模拟的服务器上加载插件, 让大量模拟玩家同时执行真实指令,
+// 完整经过 onCommand -> 任务队列 -> 读取/分页/渲染 -> 区域线程发书, 以背包中出现物品作为送达.
+// 主线程即驱动 tick 的线程, 只统计指令分发与 tick 执行的耗时 (不含压测自身的背包检查).
+// 结果写入 JSON, 便于在版本之间对比.
+// 用法: java -jar bookprinter-loadtest.jar [--scenario burst|ramp|give] [--players N] [--corpus 目录] [--out result.json] ...
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    private record Options(String scenario, int players, int rampTicks, Path corpus, String mode,
+                           int maxConcurrent, int queueSize, boolean cache, long tickMillis, int timeoutTicks,
+                           Path out, String label) {}
+
+    // 单个模拟玩家的一次请求: 在 dueTick 分发, 送达时记录 tick 与耗时
+    private static final class Job {
+        final PlayerMock player;
+        final String file;
+        final int dueTick;
+        long dispatchedAt;
+        int dispatchedTick = -1;
+        long latencyNanos = -1;
+        int latencyTicks = -1;
+
+        Job(PlayerMock player, String file, int dueTick) {
+            this.player = player;
+            this.file = file;
+            this.dueTick = dueTick;
+        }
+
+        boolean delivered() {
+            return latencyNanos >= 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        if (options == null) {
+            System.err.println("Usage: java -jar bookprinter-loadtest.jar [--scenario burst|ramp|give] [--players <n>] "
+                    + "[--ramp-ticks <n>] [--corpus <dir>] [--mode classic|modern] [--max-concurrent <n>] "
+                    + "[--queue-size <n>] [--no-cache] [--tick-ms <ms>] [--timeout-ticks <n>] "
+                    + "[--out <result.json>] [--label <text>]");
+            System.exit(2);
+            return;
+        }
+
+        ServerMock server = MockBukkit.mock();
+        try {
+            BookPrinter plugin = MockBukkit.load(BookPrinter.class);
+            List<String> files = prepareCorpus(plugin.getDataFolder().toPath(), options.corpus());
+            configure(plugin, options);
+
+            List<PlayerMock> players = new ArrayList<>(options.players());
+            for (int i = 0; i < options.players(); i++) {
+                PlayerMock player = server.addPlayer("LoadTest" + i);
+                player.setOp(true);
+                players.add(player);
+            }
+            List<Job> jobs = plan(options, players, files);
+            System.out.printf(Locale.ROOT, "Running %s: %d players, %d files, %s mode%n",
+                    options.scenario(), players.size(), files.size(), options.mode());
+
+            String json = run(server, plugin, options, files, jobs);
+            Files.writeString(options.out(), json, StandardCharsets.UTF_8);
+            System.out.println(json);
+        } finally {
+            MockBukkit.unmock();
+        }
+    }
+
+    private static Options parse(String[] args) {
+        String scenario = "burst";
+        int players = 200;
+        int rampTicks = 100;
+        Path corpus = null;
+        String mode = "modern";
+        int maxConcurrent = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        int queueSize = -1;
+        boolean cache = true;
+        long tickMillis = 50;
+        int timeoutTicks = 6000;
+        Path out = Path.of("loadtest-result.json");
+        String label = "";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--no-cache")) {
+                    cache = false;
+                    continue;
+                }
+                if (!arg.startsWith("--") || i + 1 >= args.length) return null;
+                String value = args[++i];
+                switch (arg) {
+                    case "--scenario" -> scenario = value.toLowerCase(Locale.ROOT);
+                    case "--players" -> players = Math.max(1, Integer.parseInt(value));
+                    case "--ramp-ticks" -> rampTicks = Math.max(1, Integer.parseInt(value));
+                    case "--corpus" -> corpus = Path.of(value);
+                    case "--mode" -> mode = value.toLowerCase(Locale.ROOT);
+                    case "--max-concurrent" -> maxConcurrent = Math.max(1, Integer.parseInt(value));
+                    case "--queue-size" -> queueSize = Math.max(0, Integer.parseInt(value));
+                    case "--tick-ms" -> tickMillis = Math.max(0, Long.parseLong(value));
+                    case "--timeout-ticks" -> timeoutTicks = Math.max(1, Integer.parseInt(value));
+                    case "--out" -> out = Path.of(value);
+                    case "--label" -> label = value;
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!List.of("burst", "ramp", "give").contains(scenario)) return null;
+        if (!mode.equals("classic") && !mode.equals("modern")) return null;
+        // 默认队列容纳全部请求, 测量的是吞吐而不是拒绝率
+        if (queueSize < 0) queueSize = players;
+        return new Options(scenario, players, rampTicks, corpus, mode, maxConcurrent, queueSize, cache,
+                tickMillis, timeoutTicks, out, label);
+    }
+
+    // 语料放在插件目录根下 (classic 模式默认不允许子目录); 未指定时以固定种子生成
+    private static List<String> prepareCorpus(Path dataFolder, Path corpus) throws IOException {
+        Files.createDirectories(dataFolder);
+        List<String> names = new ArrayList<>();
+        if (corpus != null) {
+            try (Stream<Path> stream = Files.list(corpus)) {
+                for (Path file : (Iterable<Path>) stream.sorted()::iterator) {
+                    String name = file.getFileName().toString();
+                    if (!Files.isRegularFile(file) || !name.toLowerCase(Locale.ROOT).endsWith(".txt")) continue;
+                    Files.copy(file, dataFolder.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                    names.add(name);
+                }
+            }
+            if (names.isEmpty()) throw new IOException("No .txt files in " + corpus);
+            return names;
+        }
+
+        int[] sizes = {2_048, 8_192, 16_384, 32_768, 65_536, 131_072};
+        SplittableRandom random = new SplittableRandom(20250101L);
+        for (int i = 0; i < sizes.length; i++) {
+            String name = "loadtest-" + (sizes[i] / 1024) + "k.txt";
+            Files.writeString(dataFolder.resolve(name), generate(random, sizes[i]), StandardCharsets.UTF_8);
+            names.add(name);
+        }
+        return names;
+    }
+
+    // 英文单词夹杂 & 颜色代码与空行, classic 与 modern 模式都能解析
+    private static String generate(SplittableRandom random, int bytes) {
+        String[] words = {"the", "printer", "ink", "quiet", "library", "river", "lantern", "paper", "north", "story"};
+        String codes = "0123456789abcdeflmno";
+        StringBuilder sb = new StringBuilder(bytes + 64);
+        while (sb.length() < bytes) {
+            if (random.nextInt(6) == 0) sb.append('&').append(codes.charAt(random.nextInt(codes.length())));
+            sb.append(words[random.nextInt(words.length)]);
+            sb.append(random.nextInt(40) == 0 ? "\n\n" : " ");
+        }
+        return sb.toString();
+    }
+
+    // 通过 config.yml 调整设置, 与 reload 指令走同一条 applyReload 路径. 指令会把重载放到异步线程,
+    // 压测开始时可能仍在使用默认的队列与冷却, 这里在主线程同步重载, 返回前新设置与任务队列都已生效
+    private static void configure(BookPrinter plugin, Options options) {
+        plugin.getConfig().set("Switch-mode", options.mode());
+        plugin.getConfig().set("auto_reload", false);
+        plugin.getConfig().set("cache.enabled", options.cache());
+        plugin.getConfig().set("store.enabled", options.cache());
+        plugin.getConfig().set("jobs.max_concurrent", options.maxConcurrent());
+        plugin.getConfig().set("jobs.queue_size", options.queueSize());
+        plugin.getConfig().set("jobs.cooldown_seconds", 0);
+        plugin.saveConfig();
+        plugin.applyReload();
+
+        Settings applied = plugin.settingsFor(null);
+        if (!applied.mode().equals(options.mode())
+                || applied.cache().enabled() != options.cache()
+                || applied.jobs().maxConcurrent() != options.maxConcurrent()
+                || applied.jobs().queueSize() != options.queueSize()
+                || applied.jobs().cooldownMillis() != 0) {
+            throw new IllegalStateException("Settings were not applied: " + applied.jobs() + ", mode " + applied.mode());
+        }
+    }
+
+    // burst: 所有玩家在第 0 tick 同时请求; ramp: 请求均匀分布在 ramp-ticks 内; give: 一条 give 指令把第一个文件发给所有玩家
+    private static List<Job> plan(Options options, List<PlayerMock> players, List<String> files) {
+        List<Job> jobs = new ArrayList<>(players.size());
+        for (int i = 0; i < players.size(); i++) {
+            int due = options.scenario().equals("ramp") ? (int) ((long) i * options.rampTicks() / players.size()) : 0;
+            String file = options.scenario().equals("give") ? files.get(0) : files.get(i % files.size());
+            jobs.add(new Job(players.get(i), file, due));
+        }
+        return jobs;
+    }
+
+    private static String run(ServerMock server, BookPrinter plugin, Options options, List<String> files,
+                              List<Job> jobs) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        boolean give = options.scenario().equals("give");
+        CommandSender console = server.getConsoleSender();
+
+        long mainWall = 0;
+        long mainCpu = 0;
+        int remaining = jobs.size();
+        int next = 0;
+        int tick = 0;
+        long start = System.nanoTime();
+        while (remaining > 0 && tick < options.timeoutTicks()) {
+            long tickStart = System.nanoTime();
+            long cpuStart = threads.getCurrentThreadCpuTime();
+
+            if (give && tick == 0) {
+                long now = System.nanoTime();
+                server.dispatchCommand(console, "bookprinter give " + files.get(0) + " @a");
+                for (Job job : jobs) {
+                    job.dispatchedAt = now;
+                    job.dispatchedTick = 0;
+                }
+                next = jobs.size();
+            }
+            while (next < jobs.size() && jobs.get(next).dueTick <= tick) {
+                Job job = jobs.get(next++);
+                job.dispatchedAt = System.nanoTime();
+                job.dispatchedTick = tick;
+                job.player.performCommand("bookprinter " + job.file);
+            }
+            server.getScheduler().performOneTick();
+
+            mainWall += System.nanoTime() - tickStart;
+            mainCpu += threads.getCurrentThreadCpuTime() - cpuStart;
+
+            long now = System.nanoTime();
+            for (int i = 0; i < next; i++) {
+                Job job = jobs.get(i);
+                if (!job.delivered() && !job.player.getInventory().isEmpty()) {
+                    job.latencyNanos = now - job.dispatchedAt;
+                    job.latencyTicks = tick - job.dispatchedTick;
+                    remaining--;
+                }
+            }
+            tick++;
+
+            long sleep = options.tickMillis() - (System.nanoTime() - tickStart) / 1_000_000;
+            if (sleep > 0) Thread.sleep(sleep);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) peakHeap += pool.getPeakUsage().getUsed();
+        return report(plugin, options, files, jobs, tick, elapsed, mainWall, mainCpu, peakHeap,
+                gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    private static String report(BookPrinter plugin, Options options, List<String> files, List<Job> jobs, int ticks,
+                                 long elapsedNanos, long mainWall, long mainCpu, long peakHeap,
+                                 long gcCount, long gcMillis) {
+        long[] latencies = jobs.stream().filter(Job::delivered).mapToLong(j -> j.latencyNanos).sorted().toArray();
+        long[] latencyTicks = jobs.stream().filter(Job::delivered).mapToLong(j -> j.latencyTicks).sorted().toArray();
+        int delivered = latencies.length;
+        long corpusBytes = 0;
+        for (String file : files) {
+            try {
+                corpusBytes += Files.size(plugin.getDataFolder().toPath().resolve(file));
+            } catch (IOException ignored) {
+                // 只影响报告中的语料大小
+            }
+        }
+        double seconds = elapsedNanos / 1e9;
+        int perJob = Math.max(1, delivered);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        field(json, "label", quote(options.label()));
+        field(json, "timestamp", quote(Instant.now().toString()));
+        field(json, "plugin_version", quote(plugin.getPluginMeta().getVersion()));
+        field(json, "java_version", quote(System.getProperty("java.version")));
+        field(json, "available_processors", Runtime.getRuntime().availableProcessors());
+        field(json, "scenario", quote(options.scenario()));
+        field(json, "mode", quote(options.mode()));
+        field(json, "players", jobs.size());
+        field(json, "corpus_files", files.size());
+        field(json, "corpus_bytes", corpusBytes);
+        field(json, "max_concurrent", options.maxConcurrent());
+        field(json, "queue_size", options.queueSize());
+        field(json, "cache", options.cache());
+        field(json, "tick_ms", options.tickMillis());
+        field(json, "delivered", delivered);
+        field(json, "undelivered", jobs.size() - delivered);
+        field(json, "ticks", ticks);
+        field(json, "elapsed_ms", fmt(elapsedNanos / 1e6));
+        field(json, "throughput_per_sec", fmt(seconds > 0 ? delivered / seconds : 0));
+        field(json, "time_to_delivery_ms", "{\"p50\": " + fmt(percentile(latencies, 50) / 1e6)
+                + ", \"p90\": " + fmt(percentile(latencies, 90) / 1e6)
+                + ", \"p99\": " + fmt(percentile(latencies, 99) / 1e6)
+                + ", \"max\": " + fmt(percentile(latencies, 100) / 1e6) + "}");
+        field(json, "time_to_delivery_ticks", "{\"p50\": " + percentile(latencyTicks, 50)
+                + ", \"p99\": " + percentile(latencyTicks, 99) + "}");
+        field(json, "main_thread_ms", "{\"wall_total\": " + fmt(mainWall / 1e6)
+                + ", \"cpu_total\": " + fmt(mainCpu / 1e6)
+                + ", \"wall_per_job\": " + fmt(mainWall / 1e6 / perJob)
+                + ", \"cpu_per_job\": " + fmt(mainCpu / 1e6 / perJob) + "}");
+        field(json, "peak_heap_bytes", peakHeap);
+        field(json, "gc_count", gcCount);
+        json.append("  \"gc_time_ms\": ").append(gcMillis).append("\n}\n");
+        return json.toString();
+    }
+
+    // 最近秩法; 没有样本时为 0
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(c -> c > 0).sum();
+    }
+
+    private static void field(StringBuilder json, String name, Object value) {
+        json.append("  \"").append(name).append("\": ").append(value).append(",\n");
+    }
+
+    private static String fmt(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c < 0x20 ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
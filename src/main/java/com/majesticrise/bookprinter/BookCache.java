@@ -0,0 +1,180 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 已生成书页的内存缓存, 以文件身份 (规范路径 + 修改时间 + 大小) 和解析配置指纹为键
+public final class BookCache {
+
+    // 每个组件节点的估算固定开销 (对象头 + 样式引用等)
+    private static final int NODE_OVERHEAD_BYTES = 48;
+    private static final int CHECKPOINT_BYTES = 40;
+    // 读取期间文件反复被改写时的最多读取次数
+    private static final int READ_ATTEMPTS = 3;
+
+    public record Key(String path, long modified, long size, String mode, int settingsHash) {}
+
+    // 文件内容与读取时对应的 key; 文件一直在变化时 key 为 null, 内容只能用于本次请求, 不能写入缓存
+    public record Snapshot(Key key, byte[] bytes) {}
+
+    private record Entry(List<Component> pages, List<Repagination.Checkpoint> checkpoints, long weight) {}
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 路径 + 模式 + 配置指纹 -> 最近一次放入的 key, 供文件变化后查找旧版本做增量分页
+    private final Map<String, Key> latest = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long maxWeight;
+    private long weight;
+
+    public BookCache(long maxWeight) {
+        this.maxWeight = Math.max(0, maxWeight);
+    }
+
+    public static Key keyOf(File file, String mode, Settings settings) throws IOException {
+        return stat(file.getPath(), mode, settings.settingsHash(mode));
+    }
+
+    // 属性在读取内容之前取得, 读取期间文件被改写时 key 会描述另一个版本. 读完后重新取属性,
+    // 与读取前一致且长度相符才采用, 否则以新属性重读
+    public static Snapshot read(Key key) throws IOException {
+        Path path = Path.of(key.path());
+        Key expected = key;
+        for (int attempt = 1; ; attempt++) {
+            byte[] bytes = Files.readAllBytes(path);
+            Key actual = stat(key.path(), key.mode(), key.settingsHash());
+            if (actual.equals(expected) && bytes.length == actual.size()) return new Snapshot(actual, bytes);
+            if (attempt == READ_ATTEMPTS) return new Snapshot(null, bytes);
+            expected = actual;
+        }
+    }
+
+    private static Key stat(String path, String mode, int settingsHash) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(Path.of(path), BasicFileAttributes.class);
+        return new Key(path, attrs.lastModifiedTime().toMillis(), attrs.size(), mode, settingsHash);
+    }
+
+    // 只取标量配置并按键排序, 保证指纹在不同进程间稳定 (磁盘缓存依赖此值);
+    // 模式配置之外, 会改变书页组件的其他设置也计入指纹
+    public static int settingsHash(String mode, ConfigurationSection config) {
+        ConfigurationSection section = config.getConfigurationSection(mode);
+        Map<String, Object> values = new TreeMap<>();
+        if (section != null) {
+            for (Map.Entry<String, Object> entry : section.getValues(true).entrySet()) {
+                if (!(entry.getValue() instanceof ConfigurationSection)) values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        values.put("network.compact_components", config.getBoolean("network.compact_components", true));
+        return (mode + values).hashCode();
+    }
+
+    public synchronized List<Component> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.pages();
+    }
+
+    // 同一文件的旧版本 (修改时间或大小不同) 仍在缓存中时返回它的书页与检查点, 不计入命中统计
+    public synchronized Repagination.Compiled previous(Key key) {
+        Key last = latest.get(identity(key));
+        if (last == null || last.equals(key)) return null;
+        Entry entry = entries.get(last);
+        return entry != null ? new Repagination.Compiled(entry.pages(), entry.checkpoints()) : null;
+    }
+
+    public synchronized void put(Key key, Repagination.Compiled compiled) {
+        List<Component> pages = compiled.pages();
+        long w = weigh(pages) + (long) compiled.checkpoints().size() * CHECKPOINT_BYTES;
+        if (w > maxWeight) return;
+
+        Entry previous = entries.put(key, new Entry(List.copyOf(pages), List.copyOf(compiled.checkpoints()), w));
+        if (previous != null) weight -= previous.weight();
+        weight += w;
+        // 旧版本已被新版本取代, 不再保留
+        Key replaced = latest.put(identity(key), key);
+        if (replaced != null && !replaced.equals(key)) {
+            Entry old = entries.remove(replaced);
+            if (old != null) weight -= old.weight();
+        }
+        evictToLimit();
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        latest.clear();
+        weight = 0;
+    }
+
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = Math.max(0, maxWeight);
+        evictToLimit();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    private void evictToLimit() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            weight -= eldest.getValue().weight();
+            it.remove();
+            latest.remove(identity(eldest.getKey()), eldest.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static String identity(Key key) {
+        return key.path() + '\0' + key.mode() + '\0' + key.settingsHash();
+    }
+
+    static long weigh(List<Component> pages) {
+        long total = 0;
+        for (Component page : pages) {
+            total += weigh(page);
+        }
+        return total;
+    }
+
+    private static long weigh(Component component) {
+        long w = NODE_OVERHEAD_BYTES;
+        if (component instanceof TextComponent text) {
+            w += (long) text.content().length() * Character.BYTES;
+        }
+        for (Component child : component.children()) {
+            w += weigh(child);
+        }
+        return w;
+    }
+}
@@ -0,0 +1,92 @@
+package com.majesticrise.bookprinter;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+// 批量发书: 由全局区域调度器每 tick 处理一批玩家, 受批量大小和时间预算双重限制.
+// 玩家所在区域归当前线程所有时 (Paper) 直接发放并计入预算, 否则 (Folia) 分派到玩家的实体调度器
+final class BookDistributor {
+
+    private final Plugin plugin;
+    private final List<ItemStack> items;
+    private final List<Player> recipients;
+    private final int batchSize;
+    private final long budgetNanos;
+    private final BiConsumer<Player, List<ItemStack>> delivery;
+    // 全部处理完毕后回调: (已发放, 已离线)
+    private final BiConsumer<Integer, Integer> onComplete;
+
+    private final AtomicInteger pending;
+    private final AtomicInteger delivered = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private int next;
+
+    BookDistributor(Plugin plugin, List<ItemStack> items, List<Player> recipients, int batchSize, long budgetNanos,
+                    BiConsumer<Player, List<ItemStack>> delivery, BiConsumer<Integer, Integer> onComplete) {
+        this.plugin = plugin;
+        this.items = items;
+        this.recipients = recipients;
+        this.batchSize = Math.max(1, batchSize);
+        this.budgetNanos = Math.max(0, budgetNanos);
+        this.delivery = delivery;
+        this.onComplete = onComplete;
+        this.pending = new AtomicInteger(recipients.size());
+    }
+
+    void start() {
+        if (recipients.isEmpty()) {
+            onComplete.accept(0, 0);
+            return;
+        }
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, this::tick, 1L, 1L);
+    }
+
+    private void tick(ScheduledTask task) {
+        final long deadline = System.nanoTime() + budgetNanos;
+        int handled = 0;
+        // 每 tick 至少处理一人, 保证进度
+        while (next < recipients.size() && handled < batchSize
+                && (handled == 0 || System.nanoTime() < deadline)) {
+            Player player = recipients.get(next++);
+            handled++;
+            if (Bukkit.isOwnedByCurrentRegion(player)) {
+                give(player);
+            } else {
+                ScheduledTask scheduled = player.getScheduler().run(plugin, t -> give(player), () -> done(false));
+                if (scheduled == null) done(false);
+            }
+        }
+        if (next >= recipients.size()) task.cancel();
+    }
+
+    private void give(Player player) {
+        if (!player.isOnline()) {
+            done(false);
+            return;
+        }
+        try {
+            List<ItemStack> copies = new ArrayList<>(items.size());
+            for (ItemStack item : items) copies.add(item.clone());
+            delivery.accept(player, copies);
+            done(true);
+        } catch (RuntimeException e) {
+            done(false);
+            throw e;
+        }
+    }
+
+    private void done(boolean success) {
+        (success ? delivered : skipped).incrementAndGet();
+        if (pending.decrementAndGet() == 0) {
+            onComplete.accept(delivered.get(), skipped.get());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.majesticrise.bookprinter;
 
+import net.kyori.adventure.inventory.Book;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
@@ -9,26 +10,57 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.BookMeta;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.configuration.ConfigurationSection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 
-public final class BookPrinter extends JavaPlugin implements CommandExecutor, TabCompleter {
+public final class BookPrinter extends JavaPlugin implements CommandExecutor, TabCompleter, Listener {
 
-    private static final String LATEST_CONFIG_VERSION = "2.0";
+    private static final String LATEST_CONFIG_VERSION = "2.1";
+    private static final int INSPECT_TOP_PAGES = 5;
+    // 关服时等待工作线程退出的最长时间
+    private static final long SHUTDOWN_WAIT_MILLIS = 5000L;
+    private final AtomicReference<Settings> settings = new AtomicReference<>();
     private LanguageManager languageManager;
+    private BookCache bookCache;
+    private volatile BookStore bookStore;
+    private volatile PageRenderer pageRenderer;
+    private DirectoryWatcher directoryWatcher;
+    private volatile FileIndex fileIndex;
+    private volatile JobAdmission jobs;
+    private volatile ConfigWatcher configWatcher;
+    private final JobManager jobManager = new JobManager();
+    private final PrintMetrics metrics = new PrintMetrics();
+    private final AtomicLong reusedPages = new AtomicLong();
+    private final AtomicLong reflowedBooks = new AtomicLong();
+    private final AtomicLong rejectedBooks = new AtomicLong();
 
     @Override
     public void onEnable() {
@@ -40,11 +72,25 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
 
         ensureLanguageFilesExist();
         saveDefaultConfig();
-        checkConfigUpdate();
+        File replaced = checkConfigUpdate();
         reloadConfig();
+        Settings current = Settings.from(getConfig());
+        settings.set(current);
 
-        this.languageManager = new LanguageManager(this);
-        languageManager.load();
+        this.languageManager = new LanguageManager(getLogger());
+        loadLanguages();
+        logConfigUpdated(replaced);
+
+        this.bookCache = new BookCache(current.cache().maxWeightBytes());
+        this.pageRenderer = createPageRenderer(current);
+        this.bookStore = createBookStore(current);
+        this.directoryWatcher = createDirectoryWatcher();
+        this.fileIndex = createFileIndex(current);
+        this.jobs = createJobAdmission(current);
+        this.configWatcher = createConfigWatcher(current);
+        registerMetrics();
+        Bukkit.getPluginManager().registerEvents(this, this);
+        Bukkit.getServicesManager().register(BookPrinterService.class, new PrinterService(this), this, ServicePriority.Normal);
 
         PluginCommand cmd = getCommand("bookprinter");
         if (cmd != null) {
@@ -53,6 +99,201 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
         }
 
         getLogger().info(languageManager.getRaw("log_plugin_enabled"));
+        prewarmStore();
+    }
+
+    @Override
+    public void onDisable() {
+        Bukkit.getServicesManager().unregisterAll(this);
+        // 已排队和执行中的任务在下一个检查点结束; 等它们退出后再关闭渲染线程池等组件
+        jobManager.cancelAll(JobManager.Reason.SHUTDOWN);
+        if (jobs != null) {
+            jobs.close();
+            if (!jobs.awaitTermination(SHUTDOWN_WAIT_MILLIS)) {
+                getLogger().warning(languageManager.getRaw("log_jobs_still_running", Map.of("count", String.valueOf(jobManager.size()))));
+            }
+        }
+        if (pageRenderer != null) pageRenderer.close();
+        if (fileIndex != null) fileIndex.close();
+        if (configWatcher != null) configWatcher.close();
+        if (directoryWatcher != null) directoryWatcher.close();
+        metrics.unregister();
+    }
+
+    private void registerMetrics() {
+        metrics.gauge("cache.entries", () -> bookCache.size());
+        metrics.gauge("cache.hits", () -> bookCache.hits());
+        metrics.gauge("cache.misses", () -> bookCache.misses());
+        metrics.gauge("cache.evictions", () -> bookCache.evictions());
+        metrics.gauge("store.hits", () -> bookStore != null ? bookStore.hits() : 0);
+        metrics.gauge("store.writes", () -> bookStore != null ? bookStore.writes() : 0);
+        metrics.gauge("repaginate.reused_pages", reusedPages::get);
+        metrics.gauge("budget.reflowed", reflowedBooks::get);
+        metrics.gauge("budget.rejected", rejectedBooks::get);
+        metrics.gauge("jobs.active", () -> jobs.active());
+        metrics.gauge("jobs.queued", () -> jobs.queued());
+        metrics.gauge("jobs.rejected", () -> jobs.rejected());
+        metrics.gauge("jobs.coalesced", () -> jobs.coalesced());
+        metrics.gauge("jobs.tracked", jobManager::size);
+        metrics.gauge("jobs.cancelled", () -> jobManager.cancelledCount(JobManager.Reason.CANCELLED));
+        metrics.gauge("jobs.timed_out", () -> jobManager.cancelledCount(JobManager.Reason.TIMEOUT));
+        metrics.gauge("jobs.disconnected", () -> jobManager.cancelledCount(JobManager.Reason.DISCONNECTED));
+        metrics.register(getLogger());
+    }
+
+    private PageRenderer createPageRenderer(Settings current) {
+        return new PageRenderer(current.render().parallelism(), current.render().parallelThreshold());
+    }
+
+    private JobAdmission createJobAdmission(Settings current) {
+        Settings.Jobs cfg = current.jobs();
+        return new JobAdmission(cfg.maxConcurrent(), cfg.queueSize(), cfg.cooldownMillis(), cfg.virtualThreads());
+    }
+
+    private BookStore createBookStore(Settings current) {
+        if (!current.store().enabled()) return null;
+        try {
+            return new BookStore(getDataFolder(), getLogger());
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to create compiled book cache directory", e);
+            return null;
+        }
+    }
+
+    // 在后台为尚无有效磁盘缓存的 TXT 文件预先生成书页
+    private void prewarmStore() {
+        final BookStore store = bookStore;
+        final Settings current = settings.get();
+        if (store == null || !current.store().prewarm()) return;
+
+        final String mode = current.mode();
+        final long limit = current.maxFileBytes();
+        final int depth = current.classic().allowSubdirs() ? 16 : 1;
+
+        Bukkit.getAsyncScheduler().runNow(this, (task) -> {
+            int checked = 0;
+            int compiled = 0;
+            try {
+                Path root = getDataFolder().toPath().toRealPath();
+                List<Path> sources;
+                try (Stream<Path> paths = Files.walk(root, depth)) {
+                    sources = paths.filter(p -> !p.startsWith(root.resolve(BookStore.DIRECTORY)))
+                            .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".txt"))
+                            .filter(Files::isRegularFile)
+                            .toList();
+                }
+                for (Path source : sources) {
+                    File file = source.toRealPath().toFile();
+                    if (!file.toPath().startsWith(root) || file.length() > limit) continue;
+                    checked++;
+                    BookCache.Key key = BookCache.keyOf(file, mode, current);
+                    if (store.contains(key)) continue;
+                    try {
+                        BookCache.Snapshot snapshot = BookCache.read(key);
+                        if (snapshot.key() == null) continue;
+                        store.save(snapshot.key(), snapshot.bytes(),
+                                compilePages(BookStore.decodeUtf8(snapshot.bytes()), current, null, null, null));
+                        compiled++;
+                    } catch (Exception e) {
+                        getLogger().log(Level.WARNING, "Prewarm skipped " + file.getName(), e);
+                    }
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Prewarm of compiled book cache failed", e);
+            }
+            getLogger().info(languageManager.getRaw("log_store_prewarmed", Map.of(
+                    "compiled", String.valueOf(compiled), "checked", String.valueOf(checked))));
+        });
+    }
+
+    // 文件索引与配置监听共用一个 WatchService 和监听线程; 创建失败时两者都退回直接访问文件系统
+    private DirectoryWatcher createDirectoryWatcher() {
+        try {
+            return new DirectoryWatcher(getLogger()).start();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to create file watcher, tab completion will scan the data folder directly", e);
+            return null;
+        }
+    }
+
+    private FileIndex createFileIndex(Settings current) {
+        if (directoryWatcher == null) return null;
+        try {
+            return new FileIndex(directoryWatcher, getDataFolder(), current.classic().allowSubdirs(), getLogger())
+                    .exclude(BookStore.DIRECTORY).start();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to watch data folder, tab completion will scan it directly", e);
+            return null;
+        }
+    }
+
+    private ConfigWatcher createConfigWatcher(Settings current) {
+        if (!current.autoReload() || directoryWatcher == null) return null;
+        try {
+            return new ConfigWatcher(directoryWatcher, getDataFolder(), this::autoReload).start();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to watch config files, use /bookprinter reload to apply changes", e);
+            return null;
+        }
+    }
+
+    // 监听线程回调: 配置文件写到一半时 YAML 可能无法解析, 此时保留当前配置等待下一次保存
+    private void autoReload(String changedFiles) {
+        File configFile = new File(getDataFolder(), "config.yml");
+        try {
+            if (configFile.exists()) new YamlConfiguration().load(configFile);
+        } catch (IOException | InvalidConfigurationException e) {
+            getLogger().warning(languageManager.getRaw("log_auto_reload_invalid", Map.of("error", String.valueOf(e.getMessage()))));
+            return;
+        }
+        applyReload();
+        getLogger().info(languageManager.getRaw("log_auto_reloaded", Map.of("files", changedFiles)));
+    }
+
+    // 重新读取配置并整体替换快照; 只重建设置发生变化的组件. 命令与文件监听都可能触发, 串行执行
+    synchronized void applyReload() {
+        reloadConfig();
+        File replaced = checkConfigUpdate();
+        Settings previous = settings.get();
+        Settings next = Settings.from(getConfig());
+        settings.set(next);
+
+        loadLanguages();
+        logConfigUpdated(replaced);
+        bookCache.setMaxWeight(next.cache().maxWeightBytes());
+        // 解析配置变化后旧条目的 key 不会再被命中, 直接释放
+        if (next.classicHash() != previous.classicHash() || next.modernHash() != previous.modernHash()) {
+            bookCache.invalidateAll();
+        }
+        if (!next.render().equals(previous.render())) {
+            PageRenderer oldRenderer = pageRenderer;
+            pageRenderer = createPageRenderer(next);
+            oldRenderer.close();
+        }
+        if (!next.store().equals(previous.store())) {
+            bookStore = createBookStore(next);
+        }
+        FileIndex oldIndex = fileIndex;
+        if (oldIndex == null || !oldIndex.isReady() || next.classic().allowSubdirs() != previous.classic().allowSubdirs()) {
+            fileIndex = createFileIndex(next);
+            if (oldIndex != null) oldIndex.close();
+        }
+        if (!next.jobs().equals(previous.jobs())) {
+            JobAdmission oldJobs = jobs;
+            jobs = createJobAdmission(next);
+            oldJobs.close();
+        }
+
+        ConfigWatcher watcher = configWatcher;
+        if (next.autoReload() && watcher == null) {
+            configWatcher = createConfigWatcher(next);
+        } else if (!next.autoReload() && watcher != null) {
+            configWatcher = null;
+            watcher.close();
+        } else if (watcher != null) {
+            // 重载过程中写回的文件 (如配置升级) 不再触发下一次重载
+            watcher.acknowledge();
+        }
     }
 
     private void ensureLanguageFilesExist() {
@@ -69,9 +310,19 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
         }
     }
 
-    private void checkConfigUpdate() {
+    // 重载时补回被删除的内置语言文件, 不覆盖服主修改过的文件
+    private void loadLanguages() {
+        for (String bundled : new String[]{"Language-en_US.yml", "Language-zh_CN.yml"}) {
+            if (!new File(getDataFolder(), bundled).exists()) saveResource(bundled, false);
+        }
+        languageManager.load(getDataFolder(), getConfig().getString("language", "zh_CN"),
+                getConfig().getBoolean("per_player_locale", true));
+    }
+
+    // 版本号不是最新时备份旧配置并写入默认配置, 返回备份文件; 日志在语言文件加载后由 logConfigUpdated 输出
+    private File checkConfigUpdate() {
         File currentConfigFile = new File(getDataFolder(), "config.yml");
-        if (!currentConfigFile.exists()) return;
+        if (!currentConfigFile.exists()) return null;
 
         try {
             FileConfiguration currentConfig = YamlConfiguration.loadConfiguration(currentConfigFile);
@@ -81,14 +332,19 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
                 File backupFile = new File(getDataFolder(), "config_old_" + System.currentTimeMillis() + ".yml");
                 if (currentConfigFile.renameTo(backupFile)) {
                     saveDefaultConfig();
-                    String msg = languageManager.getRaw("log_config_updated");
-                    getLogger().warning(msg);
                     reloadConfig();
+                    return backupFile;
                 }
             }
         } catch (Exception e) {
             getLogger().log(Level.WARNING, "Failed to check config version", e);
         }
+        return null;
+    }
+
+    private void logConfigUpdated(File backup) {
+        if (backup == null) return;
+        getLogger().warning(languageManager.getRaw("log_config_updated", Map.of("file", backup.getName())));
     }
 
     @Override
@@ -98,10 +354,16 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
         if (args.length >= 1) {
             if (args[0].equalsIgnoreCase("reload")) {
                 if (!checkPermission(sender, "bookprinter.reload")) return true;
-                reloadConfig();
-                checkConfigUpdate();
-                languageManager.reload();
-                sender.sendMessage(languageManager.get("reload_success"));
+                // 读取文件与重建组件在异步线程中进行
+                Bukkit.getAsyncScheduler().runNow(this, (task) -> {
+                    try {
+                        applyReload();
+                        scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "reload_success")));
+                    } catch (Exception e) {
+                        getLogger().log(Level.SEVERE, "Reload failed", e);
+                        scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "internal_error")));
+                    }
+                });
                 return true;
             }
 
@@ -110,169 +372,763 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
                 sendInfo(sender);
                 return true;
             }
-        }
 
-        if (!checkPermission(sender, "bookprinter.use")) return true;
+            if (args[0].equalsIgnoreCase("stats")) {
+                if (!checkPermission(sender, "bookprinter.stats")) return true;
+                sendStats(sender);
+                return true;
+            }
 
-        if (args.length == 0) {
-            sendUsage(sender);
-            return true;
-        }
+            if (args[0].equalsIgnoreCase("give")) {
+                if (!checkPermission(sender, "bookprinter.give")) return true;
+                handleGive(sender, args);
+                return true;
+            }
 
-        final ConfigurationSection config = getConfig();
-        final String mode = config.getString("Switch-mode", "classic").toLowerCase(Locale.ROOT);
-        final long maxSizeBytes = config.getLong("max_file_bytes", 2097152);
-        final boolean isClassic = "classic".equals(mode);
+            if (args[0].equalsIgnoreCase("preview")) {
+                if (!checkPermission(sender, "bookprinter.preview")) return true;
+                handlePreview(sender, args);
+                return true;
+            }
 
-        String rawInput = args[0];
-        final String fileName = rawInput.toLowerCase(Locale.ROOT).endsWith(".txt")
-                ? rawInput
-                : rawInput + ".txt";
+            if (args[0].equalsIgnoreCase("inspect")) {
+                if (!checkPermission(sender, "bookprinter.inspect")) return true;
+                handleInspect(sender, args);
+                return true;
+            }
 
-        if (fileName.contains("../")) {
-            sender.sendMessage(languageManager.get("path_invalid"));
-            return true;
-        }
+            if (args[0].equalsIgnoreCase("jobs")) {
+                if (!checkPermission(sender, "bookprinter.jobs")) return true;
+                sendJobs(sender);
+                return true;
+            }
 
-        if (isClassic) {
-            ConfigurationSection classicCfg = config.getConfigurationSection("classic");
-            boolean allowSubdirs = classicCfg != null && classicCfg.getBoolean("allow_subdirs", false);
-            if (!allowSubdirs && (fileName.contains("/") || fileName.contains("\\"))) {
-                sender.sendMessage(languageManager.get("path_no_subdir"));
+            if (args[0].equalsIgnoreCase("cancel")) {
+                handleCancel(sender, args);
                 return true;
             }
         }
 
+        if (!checkPermission(sender, "bookprinter.use")) return true;
+
+        if (args.length == 0) {
+            sendUsage(sender);
+            return true;
+        }
+
+        final Settings current = settings.get();
+        final String fileName = toFileName(args[0]);
+        final File userFile = requestedFile(sender, fileName, current);
+        if (userFile == null) return true;
+
         String potentialAuthor = null;
-        UUID potentialUuid = null;
 
         if (args.length >= 2) {
             potentialAuthor = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
         } else if (sender instanceof Player p) {
             potentialAuthor = p.getName();
-            potentialUuid = p.getUniqueId();
         }
 
         if (potentialAuthor == null) {
-            sender.sendMessage(languageManager.get("usage_main"));
+            sender.sendMessage(languageManager.get(sender, "usage_main"));
             return true;
         }
 
-        final String author = potentialAuthor.replaceAll("[\r\n]", " ").trim();
-        final String finalAuthor = author.length() > 32 ? author.substring(0, 32) : author;
-        final UUID playerUuid = potentialUuid;
+        final String finalAuthor = sanitizeAuthor(potentialAuthor);
+        runGeneration(sender, JobManager.Kind.PRINT, fileName, userFile, current, (targetFile, job) ->
+                handleGenerationAsync(sender, targetFile, finalAuthor, current, job));
+
+        return true;
+    }
+
+    private static String toFileName(String rawInput) {
+        return rawInput.toLowerCase(Locale.ROOT).endsWith(".txt")
+                ? rawInput
+                : rawInput + ".txt";
+    }
+
+    static String sanitizeAuthor(String rawAuthor) {
+        final String author = rawAuthor.replaceAll("[\r\n]", " ").trim();
+        return author.length() > 32 ? author.substring(0, 32) : author;
+    }
+
+    // 命令线程上只做字符串层面的检查, 失败时已向 sender 发送提示并返回 null
+    private File requestedFile(CommandSender sender, String fileName, Settings current) {
+        boolean isClassic = !current.isModern();
+        if (fileName.contains("../")) {
+            sender.sendMessage(languageManager.get(sender, "path_invalid"));
+            return null;
+        }
+
+        if (isClassic) {
+            if (!current.classic().allowSubdirs() && (fileName.contains("/") || fileName.contains("\\"))) {
+                sender.sendMessage(languageManager.get(sender, "path_no_subdir"));
+                return null;
+            }
+        }
 
         File userFile = new File(fileName);
         if (!userFile.isAbsolute()) {
             userFile = new File(getDataFolder(), fileName);
         } else {
-            boolean allowAbs = isClassic && config.getConfigurationSection("classic") != null &&
-                    config.getConfigurationSection("classic").getBoolean("allow_absolute_paths", false);
+            boolean allowAbs = isClassic && current.classic().allowAbsolutePaths();
             if (!allowAbs) {
-                sender.sendMessage(languageManager.get("path_no_absolute"));
-                return true;
+                sender.sendMessage(languageManager.get(sender, "path_no_absolute"));
+                return null;
+            }
+        }
+        return userFile;
+    }
+
+    private void runGeneration(CommandSender sender, JobManager.Kind kind, String fileName, File userFile,
+                               Settings current, BiConsumer<File, JobManager.Job> work) {
+        JobAdmission admission = jobs;
+        long wait = sender.hasPermission("bookprinter.bypass.cooldown") ? 0 : admission.acquireCooldown(sender);
+        if (wait > 0) {
+            String seconds = String.valueOf((wait + 999) / 1000);
+            sender.sendMessage(languageManager.get(sender, "cooldown", Map.of("seconds", seconds)));
+            return;
+        }
+
+        // 索引中的文件已在后台完成规范路径校验; 未命中时在异步线程中校验
+        long resolveStart = System.nanoTime();
+        FileIndex index = fileIndex;
+        final File indexed = (index != null && !userFile.isAbsolute()) ? index.resolve(fileName) : null;
+        if (indexed != null) metrics.record(PrintMetrics.Stage.RESOLVE, System.nanoTime() - resolveStart);
+
+        final JobManager.Job job = jobManager.register(kind, fileName, sender, current.jobs().timeoutMillis());
+        final long submitted = System.nanoTime();
+        boolean accepted = admission.submit(() -> {
+            metrics.record(PrintMetrics.Stage.QUEUE_WAIT, System.nanoTime() - submitted);
+            try {
+                jobManager.enter(job);
+                File targetFile = indexed;
+                if (targetFile == null) {
+                    long start = System.nanoTime();
+                    targetFile = resolveTarget(sender, userFile);
+                    metrics.record(PrintMetrics.Stage.RESOLVE, System.nanoTime() - start);
+                    if (targetFile == null) return;
+                    scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "start_generating")));
+                }
+                work.accept(targetFile, job);
+            } catch (JobManager.CancelledException e) {
+                notifyCancelled(sender, job, e.reason);
+            } catch (Exception e) {
+                getLogger().log(Level.SEVERE, languageManager.getRaw("log_task_exception"), e);
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "internal_error")));
+            } finally {
+                jobManager.exit(job);
+            }
+        });
+
+        if (!accepted) {
+            jobManager.exit(job);
+            admission.releaseCooldown(sender);
+            sender.sendMessage(languageManager.get(sender, "queue_full"));
+        } else if (indexed != null) {
+            sender.sendMessage(languageManager.get(sender, "start_generating"));
+        }
+    }
+
+    // 退出或关服时发起者已不在线, 只记录日志
+    private void notifyCancelled(CommandSender sender, JobManager.Job job, JobManager.Reason reason) {
+        var map = Map.of("id", String.valueOf(job.id), "file", job.file,
+                "seconds", String.valueOf(job.elapsedMillis() / 1000));
+        switch (reason) {
+            case CANCELLED -> scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "job_cancelled", map)));
+            case TIMEOUT -> {
+                getLogger().warning(languageManager.getRaw("log_job_timeout", map));
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "job_timed_out", map)));
+            }
+            case DISCONNECTED, SHUTDOWN -> getLogger().info(languageManager.getRaw("log_job_stopped",
+                    Map.of("id", String.valueOf(job.id), "file", job.file, "reason", reason.name().toLowerCase(Locale.ROOT))));
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        jobManager.cancelOwnedBy(event.getPlayer().getUniqueId());
+    }
+
+    private void handleGive(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(languageManager.get(sender, "usage_give"));
+            return;
+        }
+
+        final Settings current = settings.get();
+        final String fileName = toFileName(args[1]);
+        final File userFile = requestedFile(sender, fileName, current);
+        if (userFile == null) return;
+
+        final List<Player> recipients = selectRecipients(sender, args[2]);
+        if (recipients == null) return;
+        if (recipients.isEmpty()) {
+            sender.sendMessage(languageManager.get(sender, "give_no_targets"));
+            return;
+        }
+
+        final String author = sanitizeAuthor(args.length >= 4
+                ? String.join(" ", Arrays.copyOfRange(args, 3, args.length))
+                : sender.getName());
+        final Settings.Volumes volumes = current.volumes();
+        final int batchSize = current.give().batchSize();
+        final long budgetNanos = current.give().tickBudgetNanos();
+
+        runGeneration(sender, JobManager.Kind.GIVE, fileName, userFile, current, (targetFile, job) -> {
+            List<Component> pages = loadPages(sender, targetFile, current, job);
+            if (pages == null || exceedsBookBudget(sender, pages, current)) return;
+
+            String name = targetFile.getName();
+            job.stage(PrintMetrics.Stage.DELIVER);
+            scheduleGlobal(() -> {
+                // 整批玩家共用同一组物品, 发放时逐个 clone
+                long start = System.nanoTime();
+                List<ItemStack> items = createBookItems(TextUtils.extractTitleFromFileName(name), author, pages, volumes);
+                metrics.record(PrintMetrics.Stage.BUILD_ITEM, System.nanoTime() - start);
+                sender.sendMessage(languageManager.get(sender, "give_started",
+                        Map.of("count", String.valueOf(recipients.size()))));
+                if (BookVolumes.truncated(pages.size(), volumes)) {
+                    sender.sendMessage(languageManager.get(sender, "volumes_truncated",
+                            Map.of("max", String.valueOf(volumes.maxVolumes()))));
+                }
+                new BookDistributor(this, items, recipients, batchSize, budgetNanos,
+                        (player, copies) -> {
+                            long deliverStart = System.nanoTime();
+                            if (placeInInventory(player, copies)) {
+                                player.sendMessage(languageManager.get(player, "give_received", Map.of("file", name)));
+                            } else {
+                                player.sendMessage(languageManager.get(player, "inventory_full"));
+                            }
+                            metrics.record(PrintMetrics.Stage.DELIVER, System.nanoTime() - deliverStart);
+                        },
+                        (delivered, skipped) -> scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "give_done",
+                                Map.of("delivered", String.valueOf(delivered), "skipped", String.valueOf(skipped))))))
+                        .start();
+            });
+        });
+    }
+
+    // 预览不创建物品: 复用缓存的书页构建 Adventure Book 直接打开, 不修改玩家背包
+    private void handlePreview(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(languageManager.get(sender, "preview_player_only"));
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage(languageManager.get(sender, "usage_preview"));
+            return;
+        }
+        final int volume;
+        try {
+            volume = (args.length >= 3) ? Integer.parseInt(args[2]) : 1;
+        } catch (NumberFormatException e) {
+            sender.sendMessage(languageManager.get(sender, "usage_preview"));
+            return;
+        }
+
+        final Settings current = settings.get();
+        final String fileName = toFileName(args[1]);
+        final File userFile = requestedFile(sender, fileName, current);
+        if (userFile == null) return;
+
+        runGeneration(sender, JobManager.Kind.PREVIEW, fileName, userFile, current, (targetFile, job) -> {
+            List<Component> pages = loadPages(sender, targetFile, current, job);
+            if (pages == null || exceedsBookBudget(sender, pages, current)) return;
+
+            String name = targetFile.getName();
+            job.stage(PrintMetrics.Stage.DELIVER);
+            player.getScheduler().run(this, task -> openPreview(player, name, pages, volume, current.volumes()), null);
+        });
+    }
+
+    private void openPreview(Player player, String fileName, List<Component> pages, int volume, Settings.Volumes volumes) {
+        List<List<Component>> split = BookVolumes.split(pages, volumes);
+        if (volume < 1 || volume > split.size()) {
+            player.sendMessage(languageManager.get(player, "preview_invalid_volume",
+                    Map.of("volumes", String.valueOf(split.size()))));
+            return;
+        }
+
+        long start = System.nanoTime();
+        String title = BookVolumes.title(TextUtils.extractTitleFromFileName(fileName), volume, split.size());
+        List<Component> shown = split.get(volume - 1);
+        player.openBook(Book.book(LegacyComponentSerializer.legacySection().deserialize(title),
+                Component.text(player.getName()), shown));
+        metrics.record(PrintMetrics.Stage.DELIVER, System.nanoTime() - start);
+
+        player.sendMessage(languageManager.get(player, "preview_opened", Map.of("file", fileName,
+                "volume", String.valueOf(volume), "volumes", String.valueOf(split.size()),
+                "pages", String.valueOf(shown.size()))));
+    }
+
+    // 不使用缓存、不生成物品, 把逐页分析结果发送到聊天栏; 带 csv 参数时同时写入 inspect 目录
+    private void handleInspect(CommandSender sender, String[] args) {
+        if (args.length < 2 || (args.length >= 3 && !args[2].equalsIgnoreCase("csv"))) {
+            sender.sendMessage(languageManager.get(sender, "usage_inspect"));
+            return;
+        }
+        final boolean csv = args.length >= 3;
+        final Settings current = settings.get();
+        final String fileName = toFileName(args[1]);
+        final File userFile = requestedFile(sender, fileName, current);
+        if (userFile == null) return;
+
+        runGeneration(sender, JobManager.Kind.INSPECT, fileName, userFile, current, (targetFile, job) -> {
+            try {
+                long size = Files.size(targetFile.toPath());
+                if (size > current.maxFileBytes()) {
+                    var map = Map.of("size", String.valueOf(size), "limit", String.valueOf(current.maxFileBytes()));
+                    scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "file_too_large", map)));
+                    return;
+                }
+                job.stage(PrintMetrics.Stage.PAGINATE);
+                PageInspector.Report report = jobs.compute(job, () -> PageInspector.inspect(targetFile.toPath(), current, job));
+                Path csvFile = null;
+                if (csv) {
+                    csvFile = getDataFolder().toPath().resolve("inspect").resolve(targetFile.getName() + ".csv");
+                    PageInspector.writeCsv(report, csvFile);
+                }
+                String name = targetFile.getName();
+                String csvPath = (csvFile != null) ? getDataFolder().toPath().relativize(csvFile).toString() : null;
+                scheduleGlobal(() -> sendInspection(sender, name, report, csvPath));
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, languageManager.getRaw("log_io_error", Map.of("file", targetFile.getName())), e);
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "io_error",
+                        Map.of("error", String.valueOf(e.getMessage())))));
             }
+        });
+    }
+
+    private void sendInspection(CommandSender sender, String fileName, PageInspector.Report report, String csvPath) {
+        List<PageInspector.PageStat> pages = report.pages();
+        int count = pages.size();
+        sender.sendMessage(languageManager.get(sender, "inspect_header", Map.of("file", fileName)));
+        sender.sendMessage(languageManager.get(sender, "inspect_summary", Map.of(
+                "mode", report.mode(),
+                "size", String.valueOf(report.fileBytes()),
+                "pages", String.valueOf(count),
+                "bytes", String.valueOf(report.totalBytes()),
+                "nodes", String.valueOf(report.totalNodes()))));
+        sender.sendMessage(languageManager.get(sender, "inspect_timing", Map.of(
+                "read", formatMillis(report.readNanos() / 1000),
+                "paginate", formatMillis(report.paginateNanos() / 1000),
+                "render", formatMillis(report.renderNanos() / 1000))));
+
+        Map<String, Integer> rules = new TreeMap<>();
+        for (PageInspector.PageStat page : pages) rules.merge(page.breakRule(), 1, Integer::sum);
+        StringJoiner breaks = new StringJoiner(", ");
+        rules.forEach((rule, n) -> breaks.add(rule + " " + n));
+        sender.sendMessage(languageManager.get(sender, "inspect_breaks", Map.of("breaks", breaks.toString())));
+
+        // 按序列化体积列出最重的几页
+        List<PageInspector.PageStat> heaviest = new ArrayList<>(pages);
+        heaviest.sort(Comparator.comparingLong(PageInspector.PageStat::bytes).reversed());
+        for (PageInspector.PageStat page : heaviest.subList(0, Math.min(INSPECT_TOP_PAGES, heaviest.size()))) {
+            String key = page.jsonChars() > ComponentCompactor.MAX_PAGE_JSON ? "inspect_page_oversized" : "inspect_page";
+            sender.sendMessage(languageManager.get(sender, key, Map.of(
+                    "page", String.valueOf(page.page()),
+                    "chars", String.valueOf(page.codePoints()),
+                    "break", page.breakRule(),
+                    "nodes", String.valueOf(page.nodes()),
+                    "bytes", String.valueOf(page.bytes()))));
         }
+        if (csvPath != null) {
+            sender.sendMessage(languageManager.get(sender, "inspect_csv", Map.of("path", csvPath)));
+        }
+        sender.sendMessage(languageManager.get(sender, "info_footer"));
+    }
 
-        final File targetFile;
+    // @a: 所有在线玩家; perm:<节点>: 拥有该权限的在线玩家; 其余以 @ 开头的按原版选择器解析; 否则视为玩家名
+    private List<Player> selectRecipients(CommandSender sender, String target) {
+        List<Player> recipients = new ArrayList<>();
+        if (target.equalsIgnoreCase("@a")) {
+            recipients.addAll(Bukkit.getOnlinePlayers());
+        } else if (target.regionMatches(true, 0, "perm:", 0, 5)) {
+            String node = target.substring(5);
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                if (p.hasPermission(node)) recipients.add(p);
+            }
+        } else if (target.startsWith("@")) {
+            try {
+                for (Entity entity : Bukkit.selectEntities(sender, target)) {
+                    if (entity instanceof Player p) recipients.add(p);
+                }
+            } catch (IllegalArgumentException | UnsupportedOperationException e) {
+                sender.sendMessage(languageManager.get(sender, "give_invalid_target", Map.of("target", target)));
+                return null;
+            }
+        } else {
+            Player p = Bukkit.getPlayerExact(target);
+            if (p != null) recipients.add(p);
+        }
+        return recipients;
+    }
+
+    private File resolveTarget(CommandSender sender, File userFile) {
         try {
             File dataFolderCanonical = getDataFolder().getCanonicalFile();
             File targetFileCanonical = userFile.getCanonicalFile();
 
             if (!targetFileCanonical.toPath().startsWith(dataFolderCanonical.toPath())) {
-                sender.sendMessage(languageManager.get("path_invalid"));
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "path_invalid")));
                 String path = userFile.getPath();
                 String logMsg = languageManager.getRaw("log_path_denied", Map.of("path", path != null ? path : "unknown"));
                 getLogger().warning(logMsg);
-                return true;
+                return null;
             }
-            targetFile = targetFileCanonical;
+            return targetFileCanonical;
         } catch (IOException e) {
             getLogger().log(Level.WARNING, "Path parsing error", e);
-            sender.sendMessage(languageManager.get("path_invalid"));
-            return true;
+            scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "path_invalid")));
+            return null;
         }
-
-        sender.sendMessage(languageManager.get("start_generating"));
-
-        Bukkit.getAsyncScheduler().runNow(this, (task) -> {
-            try {
-                handleGenerationAsync(sender, targetFile, finalAuthor, mode, maxSizeBytes);
-            } catch (Exception e) {
-                getLogger().log(Level.SEVERE, languageManager.getRaw("log_task_exception"), e);
-                scheduleGlobal(() -> sender.sendMessage(languageManager.get("internal_error")));
-            }
-        });
-
-        return true;
     }
 
     private void sendInfo(CommandSender sender) {
-        ConfigurationSection config = getConfig();
-        long maxBytes = config.getLong("max_file_bytes", 2097152);
+        Settings current = settings.get();
+        long maxBytes = current.maxFileBytes();
         // 字节转MB显示
         double mb = maxBytes / (1024.0 * 1024.0);
         String sizeStr = String.format("%.2f MB", mb);
 
-        String mode = config.getString("Switch-mode", "classic");
-        String lang = config.getString("language", "zh_CN");
+        String mode = current.mode();
+        String lang = current.language();
         String version = Bukkit.getServer().getName().contains("Folia") ? (getDescription().getVersion() + " (Folia)") : getDescription().getVersion();
 
-        sender.sendMessage(languageManager.get("info_header"));
-        sender.sendMessage(languageManager.get("info_mode", Map.of("mode", mode)));
-        sender.sendMessage(languageManager.get("info_lang", Map.of("lang", lang)));
-        sender.sendMessage(languageManager.get("info_max_bytes", Map.of("size", sizeStr)));
-        sender.sendMessage(languageManager.get("info_version", Map.of("version", version)));
-        sender.sendMessage(languageManager.get("info_footer"));
+        sender.sendMessage(languageManager.get(sender, "info_header"));
+        sender.sendMessage(languageManager.get(sender, "info_mode", Map.of("mode", mode)));
+        sender.sendMessage(languageManager.get(sender, "info_lang", Map.of("lang", lang)));
+        sender.sendMessage(languageManager.get(sender, "info_max_bytes", Map.of("size", sizeStr)));
+        sender.sendMessage(languageManager.get(sender, "info_version", Map.of("version", version)));
+        sender.sendMessage(languageManager.get(sender, "info_cache", Map.of(
+                "entries", String.valueOf(bookCache.size()),
+                "size", String.format("%.2f MB", bookCache.weight() / (1024.0 * 1024.0)),
+                "hits", String.valueOf(bookCache.hits()),
+                "misses", String.valueOf(bookCache.misses()))));
+        JobAdmission admission = jobs;
+        sender.sendMessage(languageManager.get(sender, "info_jobs", Map.of(
+                "active", String.valueOf(admission.active()),
+                "queued", String.valueOf(admission.queued()),
+                "rejected", String.valueOf(admission.rejected()),
+                "coalesced", String.valueOf(admission.coalesced()))));
+        sender.sendMessage(languageManager.get(sender, "info_scanner", Map.of("scanner", ControlScanner.implementation())));
+        sender.sendMessage(languageManager.get(sender, "info_footer"));
+    }
+
+    private void sendStats(CommandSender sender) {
+        sender.sendMessage(languageManager.get(sender, "stats_header"));
+        for (PrintMetrics.Stage stage : PrintMetrics.Stage.values()) {
+            PrintMetrics.Histogram h = metrics.histogram(stage);
+            sender.sendMessage(languageManager.get(sender, "stats_stage", Map.of(
+                    "stage", stage.name(),
+                    "count", String.valueOf(h.count()),
+                    "p50", formatMillis(h.percentileMicros(0.50)),
+                    "p95", formatMillis(h.percentileMicros(0.95)),
+                    "p99", formatMillis(h.percentileMicros(0.99)),
+                    "max", formatMillis(h.maxMicros()))));
+        }
+        long completed = metrics.getJobs();
+        sender.sendMessage(languageManager.get(sender, "stats_jobs", Map.of(
+                "jobs", String.valueOf(completed),
+                "failed", String.valueOf(metrics.getFailedJobs()),
+                "bytes", String.valueOf(completed > 0 ? metrics.getBytesRead() / completed : 0),
+                "pages", String.valueOf(completed > 0 ? metrics.getPagesProduced() / completed : 0))));
+        metrics.getCounters().forEach((name, value) -> sender.sendMessage(languageManager.get(sender, "stats_counter",
+                Map.of("name", name, "value", String.valueOf(value)))));
+        sender.sendMessage(languageManager.get(sender, "info_footer"));
+    }
+
+    private void sendJobs(CommandSender sender) {
+        List<JobManager.Job> list = jobManager.list();
+        sender.sendMessage(languageManager.get(sender, "jobs_header"));
+        if (list.isEmpty()) sender.sendMessage(languageManager.get(sender, "jobs_empty"));
+        for (JobManager.Job job : list) {
+            sender.sendMessage(languageManager.get(sender, "jobs_entry", Map.of(
+                    "id", String.valueOf(job.id),
+                    "kind", job.kind.name().toLowerCase(Locale.ROOT),
+                    "file", job.file,
+                    "owner", job.ownerName,
+                    "stage", job.stage().name().toLowerCase(Locale.ROOT),
+                    "pages", String.valueOf(job.pages()),
+                    "elapsed", String.format(Locale.ROOT, "%.1f", job.elapsedMillis() / 1000.0))));
+        }
+        sender.sendMessage(languageManager.get(sender, "info_footer"));
+    }
+
+    // 拥有 bookprinter.jobs 权限时可以取消任意任务, 否则只能取消自己发起的任务
+    private void handleCancel(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(languageManager.get(sender, "usage_cancel"));
+            return;
+        }
+        String raw = args[1].startsWith("#") ? args[1].substring(1) : args[1];
+        long id;
+        try {
+            id = Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            sender.sendMessage(languageManager.get(sender, "usage_cancel"));
+            return;
+        }
+
+        JobManager.Job job = jobManager.get(id);
+        boolean own = job != null && sender instanceof Player player && player.getUniqueId().equals(job.owner);
+        if (!sender.hasPermission("bookprinter.jobs") && !(own && sender.hasPermission("bookprinter.use"))) {
+            // 没有权限时不透露任务是否存在
+            sender.sendMessage(languageManager.get(sender, "no_permission"));
+            return;
+        }
+        if (job == null || !job.cancel(JobManager.Reason.CANCELLED)) {
+            sender.sendMessage(languageManager.get(sender, "cancel_not_found", Map.of("id", raw)));
+            return;
+        }
+        sender.sendMessage(languageManager.get(sender, "cancel_success", Map.of("id", raw, "file", job.file)));
+    }
+
+    private static String formatMillis(long micros) {
+        return String.format(Locale.ROOT, "%.2f", micros / 1000.0);
+    }
+
+    private void handleGenerationAsync(CommandSender sender, File file, String author, Settings current, JobManager.Job job) {
+        List<Component> pages = loadPages(sender, file, current, job);
+        if (pages == null || exceedsBookBudget(sender, pages, current)) return;
+        job.stage(PrintMetrics.Stage.DELIVER);
+
+        if (sender instanceof Player player) {
+            Location loc = player.getLocation();
+            Bukkit.getRegionScheduler().execute(this, loc, () -> giveBookToPlayer(player, file.getName(), author, pages, current.volumes()));
+        } else {
+            String pageCount = String.valueOf(pages.size());
+            scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "console_generated", Map.of("pages", pageCount))));
+        }
     }
 
-    private void handleGenerationAsync(CommandSender sender, File file, String author, String mode, long limit) {
+    // 读取并分页, 失败时已向 sender 发送提示并返回 null
+    private List<Component> loadPages(CommandSender sender, File file, Settings current, JobManager.Job job) {
+        List<Component> pages = readPages(sender, file, current, job);
+        if (pages == null) {
+            metrics.jobFailed();
+        } else {
+            metrics.jobCompleted(file.length(), pages.size());
+        }
+        return pages;
+    }
+
+    private List<Component> readPages(CommandSender sender, File file, Settings current, JobManager.Job job) {
+        final String mode = current.mode();
+        final long limit = current.maxFileBytes();
         try {
             if (!file.exists() || !file.isFile()) {
-                scheduleGlobal(() -> sender.sendMessage(languageManager.get("file_not_found")));
-                return;
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "file_not_found")));
+                return null;
             }
 
             long size = Files.size(file.toPath());
-            if (size > limit) {
-                var map = Map.of("size", String.valueOf(size), "limit", String.valueOf(limit));
-                scheduleGlobal(() -> sender.sendMessage(languageManager.get("file_too_large", map)));
-                return;
+            // 开启流式读取后, 超过 max_file_bytes 的文件改为边读边分页, 超过 streaming.max_file_bytes 的仍然拒绝
+            if (size > current.fileLimit()) {
+                var map = Map.of("size", String.valueOf(size), "limit", String.valueOf(current.fileLimit()));
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "file_too_large", map)));
+                return null;
             }
 
-            String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
-            List<Component> pages;
-
             try {
-                pages = "modern".equals(mode)
-                        ? TextUtils.parseModernMode(content, getConfig())
-                        : TextUtils.parseClassicMode(content, getConfig());
+                return compileFile(file, current, size > limit, job);
+            } catch (IOException | JobManager.CancelledException e) {
+                throw e;
+            } catch (ComponentCompactor.PageTooLargeException e) {
+                rejectedBooks.incrementAndGet();
+                var map = Map.of("page", String.valueOf(e.page), "size", String.valueOf(e.length),
+                        "limit", String.valueOf(ComponentCompactor.MAX_PAGE_JSON));
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "page_too_large", map)));
+                return null;
             } catch (Exception e) {
                 String fname = file.getName();
                 String msg = languageManager.getRaw("log_parse_error", Map.of("mode", mode, "file", fname != null ? fname : "unknown"));
                 getLogger().severe(msg);
                 getLogger().log(Level.SEVERE, "Parse details", e);
-                scheduleGlobal(() -> sender.sendMessage(languageManager.get("internal_error")));
-                return;
-            }
-
-            if (sender instanceof Player player) {
-                Location loc = player.getLocation();
-                Bukkit.getRegionScheduler().execute(this, loc, () -> giveBookToPlayer(player, file.getName(), author, pages));
-            } else {
-                String pageCount = String.valueOf(pages.size());
-                scheduleGlobal(() -> sender.sendMessage(languageManager.get("console_generated", Map.of("pages", pageCount))));
+                scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "internal_error")));
+                return null;
             }
 
         } catch (IOException e) {
             String fname = file.getName();
             String msg = languageManager.getRaw("log_io_error", Map.of("file", fname != null ? fname : "unknown"));
             getLogger().log(Level.WARNING, msg, e);
-            scheduleGlobal(() -> sender.sendMessage(languageManager.get("io_error")));
+            scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "io_error")));
+            return null;
         }
     }
 
-    private void giveBookToPlayer(Player player, String fileName, String author, List<Component> pages) {
+    // 已确认文件存在 (或可流式读取) 后的编译流程: 命中内存缓存或磁盘缓存时跳过解析, 相同的请求只执行一次
+    List<Component> compileFile(File file, Settings current, boolean streaming, JobManager.Job job) throws Exception {
+        final String mode = current.mode();
+        boolean useCache = !streaming && current.cache().enabled();
+        // 缓存关闭时同样以 key 合并进行中的相同请求
+        BookCache.Key cacheKey = streaming ? null : BookCache.keyOf(file, mode, current);
+        List<Component> cached = useCache ? bookCache.get(cacheKey) : null;
+
+        if (streaming) {
+            // 流式读取时读取、分页与渲染交错进行, 整体计入 PAGINATE
+            long start = System.nanoTime();
+            // 多卷输出时读满全部卷后停止, 多读一页用于判断是否有内容被省略
+            int maxPages = current.volumes().enabled()
+                    ? BookVolumes.pageLimit(current.volumes()) + 1
+                    : current.streaming().maxPages();
+            job.stage(PrintMetrics.Stage.PAGINATE);
+            List<Component> streamed = jobs.compute(job, () -> BookStreamReader.read(file.toPath(), mode, current,
+                    current.streaming().chunkBytes(), maxPages, job));
+            if (current.network().compactComponents()) streamed.replaceAll(ComponentCompactor::compact);
+            metrics.record(PrintMetrics.Stage.PAGINATE, System.nanoTime() - start);
+            // 流式结果无法重新分页, 超限时直接报错
+            ComponentCompactor.Oversized oversized = ComponentCompactor.findOversized(streamed);
+            if (oversized != null) throw new ComponentCompactor.PageTooLargeException(oversized.page(), oversized.length());
+            return streamed;
+        }
+        if (cached != null) {
+            return cached;
+        }
+        return jobs.coalesce(cacheKey, job, () -> {
+            job.stage(PrintMetrics.Stage.READ);
+            BookStore store = bookStore;
+            long readStart = System.nanoTime();
+            Repagination.Compiled compiled = (store != null) ? store.load(cacheKey) : null;
+            if (compiled != null) metrics.record(PrintMetrics.Stage.READ, System.nanoTime() - readStart);
+            if (compiled != null) {
+                if (useCache) bookCache.put(cacheKey, compiled);
+                return compiled.pages();
+            }
+            readStart = System.nanoTime();
+            BookCache.Snapshot snapshot = BookCache.read(cacheKey);
+            String content = BookStore.decodeUtf8(snapshot.bytes());
+            metrics.record(PrintMetrics.Stage.READ, System.nanoTime() - readStart);
+            // 以实际读到的版本作为缓存的 key; 文件在读取期间一直变化时不写入任何缓存
+            BookCache.Key key = snapshot.key();
+            Repagination.Compiled fresh = jobs.compute(job, () -> compilePages(content, current, key, store, job));
+            if (key != null) {
+                // 写入磁盘缓存不阻塞本次发书
+                if (store != null) Bukkit.getAsyncScheduler().runNow(this, (task) -> store.save(key, snapshot.bytes(), fresh));
+                if (useCache) bookCache.put(key, fresh);
+            }
+            return fresh.pages();
+        });
+    }
+
+    // 供 BookPrinterService 使用: 相对路径以插件目录为基准, 不受 allow_absolute_paths 等指令路径限制
+    List<Component> compilePath(Path path, Settings current, JobManager.Job job) throws Exception {
+        Path resolved = path.isAbsolute() ? path : getDataFolder().toPath().resolve(path);
+        File file = resolved.toFile().getCanonicalFile();
+        if (!file.isFile()) throw new NoSuchFileException(file.getPath());
+        long size = Files.size(file.toPath());
+        if (size > current.fileLimit()) throw new IOException("File exceeds max_file_bytes: " + size + " > " + current.fileLimit());
+        return compileFile(file, current, size > current.maxFileBytes(), job);
+    }
+
+    // 供 BookPrinterService 使用: 文本不经过磁盘缓存, 以内容摘要作为内存缓存与合并请求的 key
+    List<Component> compileText(String text, Settings current, JobManager.Job job) throws Exception {
+        String mode = current.mode();
+        String digest = HexFormat.of().formatHex(BookStore.sha256(text.getBytes(StandardCharsets.UTF_8)));
+        BookCache.Key key = new BookCache.Key("text:" + digest, 0L, text.length(), mode, current.settingsHash(mode));
+        boolean useCache = current.cache().enabled();
+        List<Component> cached = useCache ? bookCache.get(key) : null;
+        if (cached != null) return cached;
+        return jobs.coalesce(key, job, () -> {
+            Repagination.Compiled compiled = jobs.compute(job, () -> compilePages(text, current, null, null, job));
+            if (useCache) bookCache.put(key, compiled);
+            return compiled.pages();
+        });
+    }
+
+    // 把任务交给与指令相同的任务队列, 队列已满时 future 以 RejectedExecutionException 失败;
+    // 任务被取消或超时时 future 以 CancellationException 失败, 调用方 cancel() future 时同样取消任务
+    <T> CompletableFuture<T> submitJob(String label, JobManager.Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        final JobManager.Job job = jobManager.register(JobManager.Kind.API, label, null, settings.get().jobs().timeoutMillis());
+        final long submitted = System.nanoTime();
+        boolean accepted = jobs.submit(() -> {
+            metrics.record(PrintMetrics.Stage.QUEUE_WAIT, System.nanoTime() - submitted);
+            try {
+                jobManager.enter(job);
+                future.complete(task.run(job));
+            } catch (JobManager.CancelledException e) {
+                future.completeExceptionally(new CancellationException(e.getMessage()));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                jobManager.exit(job);
+            }
+        });
+        if (!accepted) {
+            jobManager.exit(job);
+            future.completeExceptionally(new RejectedExecutionException("BookPrinter job queue is full"));
+        } else {
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) job.cancel(JobManager.Reason.CANCELLED);
+            });
+        }
+        return future;
+    }
+
+    // mode 为 null 时使用 config.yml 中的模式
+    Settings settingsFor(String mode) {
+        Settings current = settings.get();
+        return (mode != null) ? current.withMode(mode) : current;
+    }
+
+    // key 不为 null 时尝试复用同一文件旧版本的书页, 只对变化之后的部分重新分页和渲染; 后台预热时 job 为 null
+    private Repagination.Compiled compilePages(String content, Settings current, BookCache.Key key, BookStore store,
+                                               JobManager.Job job) {
+        CancelToken cancel = (job != null) ? job : CancelToken.NONE;
+        if (job != null) job.stage(PrintMetrics.Stage.PAGINATE);
+        long start = System.nanoTime();
+        Repagination.Source source = Repagination.prepare(content, current);
+        Repagination.Resume resume = (key != null) ? findResume(source, key, store) : null;
+        Repagination.Plan<?> plan = Repagination.paginate(source, current, resume, cancel);
+        long paginated = System.nanoTime();
+        metrics.record(PrintMetrics.Stage.PAGINATE, paginated - start);
+        if (resume != null) reusedPages.addAndGet(resume.pages().size());
+        if (job != null) job.stage(PrintMetrics.Stage.RENDER);
+
+        UnaryOperator<Component> finish = current.network().compactComponents()
+                ? ComponentCompactor::compact
+                : UnaryOperator.identity();
+        Repagination.Compiled rendered = plan.render(pageRenderer, finish, cancel);
+        Repagination.Compiled compiled = Repagination.fit(source, current, rendered, pageRenderer, finish, cancel);
+        if (compiled != rendered) reflowedBooks.incrementAndGet();
+        metrics.record(PrintMetrics.Stage.RENDER, System.nanoTime() - paginated);
+        return compiled;
+    }
+
+    // 单本书 (多卷时为每一卷) 的估算体积超出预算时提示并返回 true; 在工作线程上执行
+    private boolean exceedsBookBudget(CommandSender sender, List<Component> pages, Settings current) {
+        long size = oversizedBookBytes(pages, current);
+        if (size < 0) return false;
+        var map = Map.of("size", String.valueOf(size), "limit", String.valueOf(current.network().maxBookBytes()));
+        scheduleGlobal(() -> sender.sendMessage(languageManager.get(sender, "book_too_large", map)));
+        return true;
+    }
+
+    // 返回第一卷超出预算的估算体积, 均未超出时返回 -1
+    long oversizedBookBytes(List<Component> pages, Settings current) {
+        long limit = current.network().maxBookBytes();
+        if (limit <= 0) return -1;
+        for (List<Component> volume : BookVolumes.split(pages, current.volumes())) {
+            long size = ComponentCompactor.estimateBytes(volume, limit);
+            if (size > limit) {
+                rejectedBooks.incrementAndGet();
+                return size;
+            }
+        }
+        return -1;
+    }
+
+    // 优先使用内存中的旧版本, 其次是磁盘缓存中的旧条目
+    private Repagination.Resume findResume(Repagination.Source source, BookCache.Key key, BookStore store) {
+        Repagination.Compiled previous = bookCache.previous(key);
+        if (previous != null) return Repagination.resume(source, previous);
+        return (store != null) ? store.loadPrevious(key, checkpoints -> Repagination.lastValid(source, checkpoints)) : null;
+    }
+
+    private void giveBookToPlayer(Player player, String fileName, String author, List<Component> pages, Settings.Volumes volumes) {
         if (!player.isOnline()) {
             String name = player.getName();
             getLogger().info(languageManager.getRaw("log_player_offline", Map.of("name", name)));
@@ -280,30 +1136,64 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
         }
 
         try {
-            ItemStack book = createBookItem(fileName, author, pages);
-            Map<Integer, ItemStack> leftover = player.getInventory().addItem(book);
+            long start = System.nanoTime();
+            List<ItemStack> items = createBookItems(TextUtils.extractTitleFromFileName(fileName), author, pages, volumes);
+            long built = System.nanoTime();
+            metrics.record(PrintMetrics.Stage.BUILD_ITEM, built - start);
 
-            if (leftover.isEmpty()) {
-                player.sendMessage(languageManager.get("success"));
-                var map = Map.of("file", fileName, "pages", String.valueOf(pages.size()));
-                player.sendMessage(languageManager.get("success_detail", map));
+            if (placeInInventory(player, items)) {
+                player.sendMessage(languageManager.get(player, "success"));
+                int volumeCount = BookVolumes.split(pages, volumes).size();
+                int pageCount = Math.min(pages.size(), BookVolumes.pageLimit(volumes));
+                if (volumeCount > 1) {
+                    player.sendMessage(languageManager.get(player, "success_volumes", Map.of("file", fileName,
+                            "volumes", String.valueOf(volumeCount), "pages", String.valueOf(pageCount))));
+                } else {
+                    var map = Map.of("file", fileName, "pages", String.valueOf(pageCount));
+                    player.sendMessage(languageManager.get(player, "success_detail", map));
+                }
             } else {
-                player.getWorld().dropItemNaturally(player.getLocation(), book);
-                player.sendMessage(languageManager.get("inventory_full"));
+                player.sendMessage(languageManager.get(player, "inventory_full"));
+            }
+            if (BookVolumes.truncated(pages.size(), volumes)) {
+                player.sendMessage(languageManager.get(player, "volumes_truncated",
+                        Map.of("max", String.valueOf(volumes.maxVolumes()))));
             }
+            metrics.record(PrintMetrics.Stage.DELIVER, System.nanoTime() - built);
 
         } catch (Exception e) {
             getLogger().log(Level.SEVERE, languageManager.getRaw("log_give_error"), e);
-            player.sendMessage(languageManager.get("internal_error"));
+            player.sendMessage(languageManager.get(player, "internal_error"));
+        }
+    }
+
+    // 按顺序放入背包, 放不下的掉落在玩家脚下并返回 false
+    private boolean placeInInventory(Player player, List<ItemStack> items) {
+        Map<Integer, ItemStack> leftover = player.getInventory().addItem(items.toArray(new ItemStack[0]));
+        if (leftover.isEmpty()) return true;
+        for (ItemStack item : leftover.values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), item);
         }
+        return false;
     }
 
-    private ItemStack createBookItem(String fileName, String author, List<Component> pages) {
+    // 多卷输出时每卷一本书, 并按配置装入容器
+    List<ItemStack> createBookItems(String title, String author, List<Component> pages, Settings.Volumes volumes) {
+        List<List<Component>> split = BookVolumes.split(pages, volumes);
+        if (split.size() == 1) return List.of(createBookItem(title, author, pages));
+
+        List<ItemStack> books = new ArrayList<>(split.size());
+        for (int i = 0; i < split.size(); i++) {
+            books.add(createBookItem(BookVolumes.title(title, i + 1, split.size()), author, split.get(i)));
+        }
+        return BookVolumes.pack(books, volumes.container(), title);
+    }
+
+    private ItemStack createBookItem(String title, String author, List<Component> pages) {
         ItemStack book = new ItemStack(org.bukkit.Material.WRITTEN_BOOK, 1);
         BookMeta meta = (BookMeta) book.getItemMeta();
         if (meta == null) return book;
 
-        String title = TextUtils.extractTitleFromFileName(fileName);
         meta.title(LegacyComponentSerializer.legacySection().deserialize(title));
         meta.author(LegacyComponentSerializer.legacySection().deserialize(author));
         meta.pages(pages);
@@ -313,17 +1203,16 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
 
     private boolean checkPermission(CommandSender sender, String perm) {
         if (sender.hasPermission(perm)) return true;
-        sender.sendMessage(languageManager.get("no_permission"));
+        sender.sendMessage(languageManager.get(sender, "no_permission"));
         return false;
     }
 
     private void sendUsage(CommandSender sender) {
-        sender.sendMessage(languageManager.get("usage_main"));
-        String mode = getConfig().getString("Switch-mode", "classic");
-        sender.sendMessage(languageManager.get("usage_mode", Map.of("mode", mode)));
+        sender.sendMessage(languageManager.get(sender, "usage_main"));
+        sender.sendMessage(languageManager.get(sender, "usage_mode", Map.of("mode", settings.get().mode())));
     }
 
-    private void scheduleGlobal(Runnable task) {
+    void scheduleGlobal(Runnable task) {
         if (Bukkit.isPrimaryThread()) {
             task.run();
         } else {
@@ -341,21 +1230,63 @@ public final class BookPrinter extends JavaPlugin implements CommandExecutor, Ta
 
             if ("reload".startsWith(input)) completions.add("reload");
             if ("info".startsWith(input)) completions.add("info");
+            if ("give".startsWith(input)) completions.add("give");
+            if ("stats".startsWith(input)) completions.add("stats");
+            if ("preview".startsWith(input)) completions.add("preview");
+            if ("inspect".startsWith(input)) completions.add("inspect");
+            if ("jobs".startsWith(input)) completions.add("jobs");
+            if ("cancel".startsWith(input)) completions.add("cancel");
 
-            File dir = getDataFolder();
-            if (dir.exists()) {
-                File[] files = dir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).endsWith(".txt"));
-                if (files != null) {
-                    for (File f : files) {
-                        String name = f.getName();
-                        if (input.isEmpty() || name.toLowerCase(Locale.ROOT).startsWith(input)) {
-                            completions.add(name);
-                        }
-                    }
+            completeFiles(input, completions);
+        } else if (args[0].equalsIgnoreCase("preview")) {
+            if (args.length == 2) completeFiles(args[1].toLowerCase(Locale.ROOT), completions);
+        } else if (args[0].equalsIgnoreCase("inspect")) {
+            if (args.length == 2) completeFiles(args[1].toLowerCase(Locale.ROOT), completions);
+            if (args.length == 3 && "csv".startsWith(args[2].toLowerCase(Locale.ROOT))) completions.add("csv");
+        } else if (args[0].equalsIgnoreCase("cancel")) {
+            if (args.length == 2) {
+                boolean all = sender.hasPermission("bookprinter.jobs");
+                for (JobManager.Job job : jobManager.list()) {
+                    boolean own = sender instanceof Player p && p.getUniqueId().equals(job.owner);
+                    String id = String.valueOf(job.id);
+                    if ((all || own) && id.startsWith(args[1])) completions.add(id);
+                }
+            }
+        } else if (args[0].equalsIgnoreCase("give")) {
+            String input = args[args.length - 1].toLowerCase(Locale.ROOT);
+            if (args.length == 2) {
+                completeFiles(input, completions);
+            } else if (args.length == 3) {
+                if ("@a".startsWith(input)) completions.add("@a");
+                if ("perm:".startsWith(input)) completions.add("perm:");
+                for (Player p : Bukkit.getOnlinePlayers()) {
+                    if (p.getName().toLowerCase(Locale.ROOT).startsWith(input)) completions.add(p.getName());
                 }
             }
         }
 
         return completions;
     }
+
+    private void completeFiles(String input, List<String> completions) {
+        FileIndex index = fileIndex;
+        if (index != null) {
+            // 索引尚未完成首次扫描时不补全文件名
+            if (index.isReady()) completions.addAll(index.complete(input));
+            return;
+        }
+
+        File dir = getDataFolder();
+        if (dir.exists()) {
+            File[] files = dir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).endsWith(".txt"));
+            if (files != null) {
+                for (File f : files) {
+                    String name = f.getName();
+                    if (input.isEmpty() || name.toLowerCase(Locale.ROOT).startsWith(input)) {
+                        completions.add(name);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// 供其他插件调用的书籍生成服务, 通过 ServicesManager 获取:
+// Bukkit.getServicesManager().load(BookPrinterService.class)
+// 所有方法立即返回; 任务在 BookPrinter 的任务队列中执行, 与指令共用缓存和并发限制, 队列已满时 future 以 RejectedExecutionException 失败.
+// 编译结果在工作线程上返回, createBookAsync 在全局区域线程上返回; 把物品放入玩家背包前需切换到玩家所在的区域线程
+public interface BookPrinterService {
+
+    // mode: "classic" 或 "modern", 为 null 时使用 config.yml 中的模式
+    record Options(String mode) {
+        public static final Options DEFAULT = new Options(null);
+    }
+
+    // 把文本 (TXT 文件内容) 分页渲染为书页
+    CompletableFuture<List<Component>> compileAsync(String text, Options options);
+
+    // 读取并分页渲染文件, 相对路径以插件目录为基准; 文件未变化时直接命中缓存
+    CompletableFuture<List<Component>> compileAsync(Path file, Options options);
+
+    // 批量编译, 结果顺序与 texts 一致; 按 jobs.max_concurrent 拆分为多个任务并行执行
+    CompletableFuture<List<List<Component>>> compileAllAsync(List<String> texts, Options options);
+
+    // 生成成书物品; 开启多卷时可能返回多本书或装好书的容器
+    CompletableFuture<List<ItemStack>> createBookAsync(String text, String title, String author, Options options);
+}
@@ -0,0 +1,273 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// 已编译书页的磁盘缓存 (数据目录下的 cache 目录), 服务器重启后首次打印只需读取缓存.
+// 每个条目: 未压缩的头部 (源文件修改时间/大小/SHA-256、解析配置指纹) + deflate 压缩的分页检查点与书页 JSON.
+// 写入先落到临时文件再原子改名, 多个服务器进程共享目录时读者只会看到完整的条目
+public final class BookStore {
+
+    public static final String DIRECTORY = "cache";
+
+    private static final int MAGIC = 0x42504B43; // "BPKC"
+    private static final int FORMAT_VERSION = 2;
+    // 解析或渲染结果发生变化时递增, 使旧条目全部失效
+    static final int COMPILER_VERSION = 5;
+    private static final String SUFFIX = ".bpc";
+
+    private static final GsonComponentSerializer GSON = GsonComponentSerializer.gson();
+
+    private final Path root;
+    private final Path dir;
+    private final Logger logger;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    public BookStore(File dataFolder, Logger logger) throws IOException {
+        this.root = dataFolder.toPath().toRealPath();
+        this.dir = root.resolve(DIRECTORY);
+        this.logger = logger;
+        Files.createDirectories(dir);
+    }
+
+    private record Header(long modified, long size, byte[] sha256, int settingsHash, String mode, String path) {}
+
+    // 条目有效时返回书页, 否则返回 null (包括条目不存在、已过期或已损坏)
+    public Repagination.Compiled load(BookCache.Key key) {
+        return read(key, true);
+    }
+
+    // 只校验头部, 不解压书页
+    public boolean contains(BookCache.Key key) {
+        return read(key, false) != null;
+    }
+
+    private Repagination.Compiled read(BookCache.Key key, boolean withPages) {
+        String relative = relativePath(key);
+        if (relative == null) return null;
+        Path entry = entryFile(relative, key.mode());
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            Header header = readHeader(in);
+            if (!matches(header, key, relative) || header.size() != key.size()) {
+                return null;
+            }
+            // 修改时间变化但大小相同时 (如 touch、重新检出), 以内容哈希确认; 读取期间文件又变化时视为未命中
+            if (header.modified() != key.modified()) {
+                BookCache.Snapshot current = BookCache.read(key);
+                if (!key.equals(current.key()) || !Arrays.equals(header.sha256(), sha256(current.bytes()))) return null;
+            }
+            if (!withPages) return new Repagination.Compiled(List.of(), List.of());
+
+            DataInputStream body = new DataInputStream(new InflaterInputStream(in));
+            List<Repagination.Checkpoint> checkpoints = readCheckpoints(body);
+            List<Component> pages = readPages(body, Integer.MAX_VALUE);
+            hits.incrementAndGet();
+            return new Repagination.Compiled(pages, checkpoints);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Ignoring unreadable cache entry " + entry.getFileName(), e);
+            return null;
+        }
+    }
+
+    // 源文件已变化时读取旧条目中仍可复用的部分: chooser 根据检查点选出恢复位置, 只反序列化此前的书页
+    public Repagination.Resume loadPrevious(BookCache.Key key, Function<List<Repagination.Checkpoint>, Repagination.Checkpoint> chooser) {
+        String relative = relativePath(key);
+        if (relative == null) return null;
+        Path entry = entryFile(relative, key.mode());
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (!matches(readHeader(in), key, relative)) return null;
+
+            DataInputStream body = new DataInputStream(new InflaterInputStream(in));
+            List<Repagination.Checkpoint> checkpoints = readCheckpoints(body);
+            Repagination.Checkpoint at = chooser.apply(checkpoints);
+            if (at == null) return null;
+            List<Component> pages = readPages(body, at.page());
+            if (pages.size() != at.page()) return null;
+            return Repagination.resume(at, checkpoints, pages);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Ignoring unreadable cache entry " + entry.getFileName(), e);
+            return null;
+        }
+    }
+
+    private static boolean matches(Header header, BookCache.Key key, String relative) {
+        return header != null
+                && header.settingsHash() == key.settingsHash()
+                && header.mode().equals(key.mode())
+                && header.path().equals(relative);
+    }
+
+    public void save(BookCache.Key key, byte[] source, Repagination.Compiled compiled) {
+        String relative = relativePath(key);
+        if (relative == null) return;
+        Path entry = entryFile(relative, key.mode());
+
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writeHeader(out, new Header(key.modified(), key.size(), sha256(source), key.settingsHash(), key.mode(), relative));
+                DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED));
+                DataOutputStream body = new DataOutputStream(deflater);
+                writeCheckpoints(body, compiled.checkpoints());
+                writePages(body, compiled.pages());
+                deflater.finish();
+            }
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write compiled book cache for " + relative, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long writes() {
+        return writes.get();
+    }
+
+    // 以数据目录为基准的相对路径作为条目身份, 服务器目录整体迁移后缓存仍然有效
+    private String relativePath(BookCache.Key key) {
+        Path source = Path.of(key.path());
+        if (!source.startsWith(root)) return null;
+        return root.relativize(source).toString().replace(File.separatorChar, '/');
+    }
+
+    private Path entryFile(String relative, String mode) {
+        byte[] digest = sha256((mode + '\0' + relative).getBytes(StandardCharsets.UTF_8));
+        return dir.resolve(HexFormat.of().formatHex(digest, 0, 16) + SUFFIX);
+    }
+
+    private static void writeHeader(DataOutputStream out, Header header) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(COMPILER_VERSION);
+        out.writeLong(header.modified());
+        out.writeLong(header.size());
+        out.write(header.sha256());
+        out.writeInt(header.settingsHash());
+        out.writeUTF(header.mode());
+        out.writeUTF(header.path());
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != COMPILER_VERSION) {
+            return null;
+        }
+        long modified = in.readLong();
+        long size = in.readLong();
+        byte[] sha256 = new byte[32];
+        in.readFully(sha256);
+        int settingsHash = in.readInt();
+        String mode = in.readUTF();
+        String path = in.readUTF();
+        return new Header(modified, size, sha256, settingsHash, mode, path);
+    }
+
+    private static void writeCheckpoints(DataOutputStream out, List<Repagination.Checkpoint> checkpoints) throws IOException {
+        out.writeInt(checkpoints.size());
+        for (Repagination.Checkpoint checkpoint : checkpoints) {
+            out.writeInt(checkpoint.offset());
+            out.writeInt(checkpoint.page());
+            out.writeInt(checkpoint.horizon());
+            out.writeLong(checkpoint.prefixHash());
+        }
+    }
+
+    private static List<Repagination.Checkpoint> readCheckpoints(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Corrupt checkpoint count " + count);
+        List<Repagination.Checkpoint> checkpoints = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            checkpoints.add(new Repagination.Checkpoint(in.readInt(), in.readInt(), in.readInt(), in.readLong()));
+        }
+        return checkpoints;
+    }
+
+    private static void writePages(DataOutputStream out, List<Component> pages) throws IOException {
+        out.writeInt(pages.size());
+        for (Component page : pages) {
+            byte[] json = GSON.serialize(page).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(json.length);
+            out.write(json);
+        }
+        out.flush();
+    }
+
+    // 最多读取 max 页
+    private static List<Component> readPages(DataInputStream in, int max) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Corrupt page count " + count);
+        count = Math.min(count, max);
+        List<Component> pages = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length < 0) throw new IOException("Corrupt page length " + length);
+            byte[] json = in.readNBytes(length);
+            if (json.length != length) throw new IOException("Truncated cache entry");
+            pages.add(GSON.deserialize(new String(json, StandardCharsets.UTF_8)));
+        }
+        return pages;
+    }
+
+    static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 与 Files.readString 一致: 遇到非法 UTF-8 时抛出异常
+    static String decodeUtf8(byte[] bytes) throws IOException {
+        return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+    }
+}
@@ -0,0 +1,187 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// 大文件流式读取: 按块解码 UTF-8 并边读边分页, 书页达到上限后立即停止读取,
+// 峰值内存只与单页大小和块大小有关, 与文件大小无关
+public final class BookStreamReader {
+
+    // modern 模式达到这一长度仍没有翻页符时强制翻页 (这样的页序列化后通常已超出单页上限), 缓冲区不会随文件增长
+    static final int MAX_PAGE_CHARS = ComponentCompactor.MAX_PAGE_JSON;
+
+    private BookStreamReader() {}
+
+    private interface ChunkConsumer {
+        // 返回 false 表示不再需要后续输入
+        boolean accept(CharSequence chunk, boolean endOfInput);
+    }
+
+    public static List<Component> read(Path file, String mode, Settings settings, int chunkBytes, int maxPages) throws IOException {
+        return read(file, mode, settings, chunkBytes, maxPages, CancelToken.NONE);
+    }
+
+    static List<Component> read(Path file, String mode, Settings settings, int chunkBytes, int maxPages,
+                                CancelToken cancel) throws IOException {
+        List<Component> pages = new ArrayList<>();
+        stream(file, mode, settings, chunkBytes, cancel, page -> {
+            pages.add(page);
+            return pages.size() < maxPages;
+        });
+        return pages;
+    }
+
+    public static void stream(Path file, String mode, Settings settings, int chunkBytes,
+                              Predicate<Component> pageSink) throws IOException {
+        stream(file, mode, settings, chunkBytes, CancelToken.NONE, pageSink);
+    }
+
+    // 每产出一页前调用 cancel
+    static void stream(Path file, String mode, Settings settings, int chunkBytes, CancelToken cancel,
+                       Predicate<Component> pageSink) throws IOException {
+        ChunkConsumer consumer = "modern".equals(mode)
+                ? new ModernFeed(cancel, pageSink)
+                : new ClassicFeed(settings.classic(), cancel, pageSink);
+        decode(file, Math.max(1024, chunkBytes), consumer);
+    }
+
+    private static void decode(Path file, int chunkBytes, ChunkConsumer consumer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        ByteBuffer bytes = ByteBuffer.allocate(chunkBytes);
+        // UTF-8 每个字节最多解码出一个 char, 不会溢出
+        CharBuffer chars = CharBuffer.allocate(chunkBytes);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (result.isError()) result.throwException();
+                if (endOfInput) {
+                    result = decoder.flush(chars);
+                    if (result.isError()) result.throwException();
+                }
+                bytes.compact();
+
+                chars.flip();
+                boolean more = consumer.accept(chars, endOfInput);
+                chars.clear();
+                if (!more) return;
+            }
+        }
+    }
+
+    private static final class ClassicFeed implements ChunkConsumer {
+        private final StringBuilder pending = new StringBuilder();
+        private final StringBuilder visible = new StringBuilder();
+        private final ClassicText.Tokenizer tokenizer = new ClassicText.Tokenizer();
+        private final Predicate<Component> pageSink;
+        private final Paginator paginator;
+
+        ClassicFeed(Settings.Classic classic, CancelToken cancel, Predicate<Component> pageSink) {
+            this.pageSink = pageSink;
+            this.paginator = TextUtils.newClassicPaginator(classic, this::page).cancel(cancel).bold(tokenizer.runs.boldCursor());
+        }
+
+        @Override
+        public boolean accept(CharSequence chunk, boolean endOfInput) {
+            pending.append(chunk);
+            int consumed = tokenizer.feed(pending, endOfInput, visible);
+            pending.delete(0, consumed);
+
+            boolean more = paginator.feed(visible);
+            visible.setLength(0);
+            if (more && endOfInput) paginator.finish();
+            return more;
+        }
+
+        // 分页器与解析器的位置都以可见字符计数, 已发出的页之前的样式区间可以丢弃
+        private boolean page(CharSequence source, int start, int end) {
+            int base = paginator.base();
+            int[] lineBreaks = paginator.lineBreaks();
+            for (int k = 0; k < lineBreaks.length; k++) lineBreaks[k] += base;
+            Component page = tokenizer.runs.render(source, base, start + base, end + base, lineBreaks);
+            tokenizer.runs.discardBefore(end + base);
+            return pageSink.test(page);
+        }
+    }
+
+    private static final class ModernFeed implements ChunkConsumer {
+        private final StringBuilder buffer = new StringBuilder();
+        private final CancelToken cancel;
+        private final Predicate<Component> pageSink;
+        private int searchFrom;
+        private int pages;
+
+        ModernFeed(CancelToken cancel, Predicate<Component> pageSink) {
+            this.cancel = cancel;
+            this.pageSink = pageSink;
+        }
+
+        @Override
+        public boolean accept(CharSequence chunk, boolean endOfInput) {
+            appendWithoutCr(chunk, buffer);
+
+            final String pageBreak = TextUtils.MODERN_PAGE_BREAK;
+            int m;
+            while ((m = buffer.indexOf(pageBreak, searchFrom)) >= 0) {
+                if (!emit(buffer.substring(0, m))) return false;
+                buffer.delete(0, m + pageBreak.length());
+                searchFrom = 0;
+            }
+            // 缓冲区末尾可能是不完整的翻页符, 强制翻页的位置不越过它
+            while (buffer.length() >= MAX_PAGE_CHARS + pageBreak.length()) {
+                int cut = forcedBreak(buffer, MAX_PAGE_CHARS);
+                if (!emit(buffer.substring(0, cut))) return false;
+                buffer.delete(0, cut);
+            }
+            searchFrom = Math.max(0, buffer.length() - pageBreak.length() + 1);
+
+            if (endOfInput) return emit(buffer.toString());
+            return true;
+        }
+
+        // 每段文本中已不含翻页符, 扫描结果恰好是一页
+        private boolean emit(String pageText) {
+            cancel.check(pages++);
+            boolean[] more = {true};
+            TextUtils.scanModernPages(pageText, page -> more[0] = pageSink.test(TextUtils.renderModernPage(page)));
+            return more[0];
+        }
+    }
+
+    // 优先在最后 1/8 内的换行或空格之后翻页; 不拆开代理对、\ 转义与 & 颜色代码 (最长 &#RRGGBB)
+    static int forcedBreak(CharSequence text, int limit) {
+        for (int i = limit; i > limit - limit / 8; i--) {
+            char c = text.charAt(i - 1);
+            if (c == '\n' || c == ' ') return i;
+        }
+        int cut = limit;
+        if (Character.isHighSurrogate(text.charAt(cut - 1))) cut--;
+        for (int i = cut - 1; i >= Math.max(0, cut - 8); i--) {
+            char c = text.charAt(i);
+            if (c == '&' || c == '\\') return i;
+        }
+        return cut;
+    }
+
+    private static void appendWithoutCr(CharSequence chunk, StringBuilder out) {
+        for (int i = 0, n = chunk.length(); i < n; i++) {
+            char c = chunk.charAt(i);
+            if (c != '\r') out.append(c);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Material;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 多卷输出: 超过单本页数的文本按顺序拆分为多本书, 标题为 "标题 (i/N)", 可选装入潜影盒或收纳袋
+final class BookVolumes {
+
+    // 原版成书的页数上限
+    static final int MAX_PAGES_PER_BOOK = 100;
+    // 成书标题的长度上限
+    private static final int MAX_TITLE_LENGTH = 32;
+    private static final int SHULKER_SLOTS = 27;
+    // 成书最多堆叠 16 本, 每本占收纳袋容量的 1/16
+    private static final int BUNDLE_SLOTS = 16;
+
+    private BookVolumes() {}
+
+    // 单次生成最多保留的页数; 未开启多卷时不限制
+    static int pageLimit(Settings.Volumes volumes) {
+        return volumes.enabled() ? volumes.pagesPerVolume() * volumes.maxVolumes() : Integer.MAX_VALUE;
+    }
+
+    static boolean truncated(int pages, Settings.Volumes volumes) {
+        return pages > pageLimit(volumes);
+    }
+
+    // 返回原列表的视图, 不复制书页; 超出 max_volumes 的部分被省略
+    static List<List<Component>> split(List<Component> pages, Settings.Volumes volumes) {
+        int perVolume = volumes.pagesPerVolume();
+        if (!volumes.enabled() || pages.size() <= perVolume) return List.of(pages);
+
+        int total = Math.min(pages.size(), pageLimit(volumes));
+        List<List<Component>> split = new ArrayList<>((total + perVolume - 1) / perVolume);
+        for (int from = 0; from < total; from += perVolume) {
+            split.add(pages.subList(from, Math.min(total, from + perVolume)));
+        }
+        return split;
+    }
+
+    // 过长时截断原标题, 保留卷号
+    static String title(String title, int index, int total) {
+        if (total <= 1) return title;
+        String suffix = " (" + index + "/" + total + ")";
+        return TextUtils.truncateByCodePoints(title, Math.max(1, MAX_TITLE_LENGTH - suffix.length())) + suffix;
+    }
+
+    // container: "shulker_box" 或 "bundle", 其余值不打包; 一个容器装不下时按顺序使用多个
+    static List<ItemStack> pack(List<ItemStack> books, String container, String title) {
+        final Material material;
+        final int capacity;
+        switch (container) {
+            case "shulker_box" -> {
+                material = Material.SHULKER_BOX;
+                capacity = SHULKER_SLOTS;
+            }
+            case "bundle" -> {
+                material = Material.BUNDLE;
+                capacity = BUNDLE_SLOTS;
+            }
+            default -> {
+                return books;
+            }
+        }
+
+        int containers = (books.size() + capacity - 1) / capacity;
+        List<ItemStack> packed = new ArrayList<>(containers);
+        for (int i = 0; i < containers; i++) {
+            List<ItemStack> part = books.subList(i * capacity, Math.min(books.size(), (i + 1) * capacity));
+            ItemStack box = new ItemStack(material, 1);
+            ItemMeta meta = box.getItemMeta();
+            if (meta instanceof BlockStateMeta stateMeta && stateMeta.getBlockState() instanceof ShulkerBox shulker) {
+                shulker.getInventory().addItem(part.toArray(new ItemStack[0]));
+                stateMeta.setBlockState(shulker);
+            } else if (meta instanceof BundleMeta bundle) {
+                bundle.setItems(part);
+            } else {
+                packed.addAll(part);
+                continue;
+            }
+            meta.displayName(LegacyComponentSerializer.legacySection().deserialize(title(title, i + 1, containers)));
+            box.setItemMeta(meta);
+            packed.add(box);
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,12 @@
+package com.majesticrise.bookprinter;
+
+// 分页、渲染与流式读取的协作式取消: 调用方显式传入, 这些阶段在检查点 (每交付一页、每渲染一页) 调用 check,
+// 需要中止时由实现抛出非受检异常 (插件中为 JobManager.CancelledException). 渲染线程与调用方不是同一线程, 实现须线程安全
+@FunctionalInterface
+interface CancelToken {
+
+    CancelToken NONE = pages -> {};
+
+    // pages 为已产出的页数, 不适用时为 -1
+    void check(int pages);
+}
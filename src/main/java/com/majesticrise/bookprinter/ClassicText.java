@@ -0,0 +1,279 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+// classic 模式的文本模型: 一次扫描把 & / § 颜色代码、&#RRGGBB 与 §x 十六进制颜色解析为样式区间, 只保留可见文本.
+// 分页只统计可见字符, 翻页时沿用上一页末尾的样式, 书页组件由样式区间直接构建
+final class ClassicText {
+
+    private final String text;
+    private final Runs runs;
+
+    private ClassicText(String text, Runs runs) {
+        this.text = text;
+        this.runs = runs;
+    }
+
+    static ClassicText parse(String rawText) {
+        Tokenizer tokenizer = new Tokenizer();
+        StringBuilder visible = new StringBuilder(rawText.length());
+        tokenizer.feed(rawText, true, visible);
+        return new ClassicText(visible.toString(), tokenizer.runs);
+    }
+
+    // 可见文本, 分页在此坐标系中进行
+    String text() {
+        return text;
+    }
+
+    // width 分页策略使用的粗体判断, 位置为可见文本坐标
+    IntPredicate bold() {
+        return runs.boldCursor();
+    }
+
+    Page page(int start, int end, int[] lineBreaks) {
+        return new Page(this, start, end, lineBreaks);
+    }
+
+    // 一页的可见文本区间, 渲染时才构建组件; lineBreaks 为需要插入换行符的位置 (见 Paginator.lineBreaks)
+    record Page(ClassicText source, int start, int end, int[] lineBreaks) {
+
+        Component render() {
+            return source.runs.render(source.text, 0, start, end, lineBreaks);
+        }
+    }
+
+    // 前缀哈希同时覆盖可见字符与样式变化, 只改颜色代码时同样视为内容变化; 结果与区间的切分方式无关
+    long hash(long hash, int from, int to, long prime) {
+        if (from >= to) return hash;
+        int r = runs.indexAt(from);
+        int nextRun = (r + 1 < runs.size) ? runs.starts[r + 1] : Integer.MAX_VALUE;
+        if (from == runs.starts[r]) hash = (hash ^ runs.codes[r]) * prime;
+        for (int i = from; i < to; i++) {
+            if (i == nextRun) {
+                r++;
+                hash = (hash ^ runs.codes[r]) * prime;
+                nextRun = (r + 1 < runs.size) ? runs.starts[r + 1] : Integer.MAX_VALUE;
+            }
+            hash = (hash ^ text.charAt(i)) * prime;
+        }
+        return hash;
+    }
+
+    // 样式区间: 按可见文本中的起始位置升序排列, 第一个区间总是从 0 开始
+    static final class Runs {
+        private int[] starts = new int[16];
+        private int[] codes = new int[16];
+        private Style[] styles = new Style[16];
+        private int size;
+
+        Runs() {
+            add(0, 0, Style.empty());
+        }
+
+        private void add(int start, int code, Style style) {
+            if (size > 0 && starts[size - 1] == start) {
+                // 同一位置连续出现多个代码时只保留最终样式
+                size--;
+            }
+            if (size > 0 && codes[size - 1] == code) return;
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                codes = Arrays.copyOf(codes, size * 2);
+                styles = Arrays.copyOf(styles, size * 2);
+            }
+            starts[size] = start;
+            codes[size] = code;
+            styles[size] = style;
+            size++;
+        }
+
+        int indexAt(int position) {
+            int i = Arrays.binarySearch(starts, 0, size, position);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        // 按位置递增查询时均摊 O(1); 位置回退或区间被丢弃后重新二分查找
+        IntPredicate boldCursor() {
+            int mask = 1 << TextDecoration.BOLD.ordinal();
+            return new IntPredicate() {
+                private int r;
+
+                @Override
+                public boolean test(int position) {
+                    if (r >= size || starts[r] > position) r = indexAt(position);
+                    if (r < 0) return false;
+                    while (r + 1 < size && starts[r + 1] <= position) r++;
+                    return (codes[r] & mask) != 0;
+                }
+            };
+        }
+
+        // 丢弃 position 之前已不再需要的区间 (流式读取时使用), 保留覆盖 position 的区间
+        void discardBefore(int position) {
+            int keep = indexAt(position);
+            if (keep <= 0) return;
+            System.arraycopy(starts, keep, starts, 0, size - keep);
+            System.arraycopy(codes, keep, codes, 0, size - keep);
+            System.arraycopy(styles, keep, styles, 0, size - keep);
+            Arrays.fill(styles, size - keep, size, null);
+            size -= keep;
+        }
+
+        // source 中下标 i 对应可见文本位置 base + i; lineBreaks 为可见文本位置, 在其前插入换行符
+        Component render(CharSequence source, int base, int start, int end, int[] lineBreaks) {
+            if (start >= end) return Component.empty();
+            int r = indexAt(start);
+            List<Component> parts = new ArrayList<>(4);
+            int pos = start;
+            while (pos < end) {
+                int runEnd = (r + 1 < size) ? Math.min(starts[r + 1], end) : end;
+                parts.add(Component.text(Paginator.withLineBreaks(source, base, pos, runEnd, lineBreaks), styles[r]));
+                pos = runEnd;
+                r++;
+            }
+            return parts.size() == 1 ? parts.get(0) : Component.text().append(parts).build();
+        }
+    }
+
+    // 可分块输入的代码解析器; 输入未结束时, 末尾不足以判断的代码序列留待下次调用
+    static final class Tokenizer {
+        // 最长的代码序列: §x§R§R§G§G§B§B
+        private static final int MAX_SEQUENCE = 14;
+        private static final int NO_COLOR = -1;
+        private static final int HEX_FLAG = 1 << 24;
+
+        final Runs runs = new Runs();
+        private final Map<Integer, Style> styleCache = new HashMap<>();
+        private final ControlScanner scanner = new ControlScanner('\r', '&', ChatColor.COLOR_CHAR);
+        // NO_COLOR, 0-15 为命名颜色, HEX_FLAG | rgb 为十六进制颜色
+        private int color = NO_COLOR;
+        private int decorations;
+        private int position;
+
+        // 返回已消费的字符数; 可见字符 (已去除 \r) 追加到 out
+        int feed(CharSequence in, boolean endOfInput, StringBuilder out) {
+            final int len = in.length();
+            scanner.reset(in);
+            int i = 0;
+            while (i < len) {
+                // 两个控制字符之间的可见文本整段追加
+                int next = scanner.next(i, len);
+                if (next > i) {
+                    out.append(in, i, next);
+                    position += next - i;
+                    i = next;
+                    continue;
+                }
+                char c = in.charAt(i);
+                if (c == '\r') {
+                    i++;
+                    continue;
+                }
+                if (!endOfInput && len - i < MAX_SEQUENCE) break;
+
+                int consumed = code(in, i, c);
+                if (consumed == 0) {
+                    out.append(c);
+                    position++;
+                    i++;
+                } else {
+                    i += consumed;
+                }
+            }
+            return i;
+        }
+
+        // 解析 i 处的代码并更新样式, 返回代码长度; 不是有效代码时返回 0
+        private int code(CharSequence in, int i, char marker) {
+            if (i + 1 >= in.length()) return 0;
+            char code = Character.toLowerCase(in.charAt(i + 1));
+
+            if (code == '#' && marker == '&' && isHexRun(in, i + 2)) {
+                setColor(HEX_FLAG | Integer.parseInt(in.subSequence(i + 2, i + 8).toString(), 16));
+                return 8;
+            }
+            if (code == 'x') {
+                int rgb = repeatedHex(in, i + 2);
+                if (rgb < 0) return 0;
+                setColor(HEX_FLAG | rgb);
+                return MAX_SEQUENCE;
+            }
+            if (code < 128 && Character.digit(code, 16) >= 0) {
+                setColor(Character.digit(code, 16));
+                return 2;
+            }
+            if (code == 'r') {
+                color = NO_COLOR;
+                decorations = 0;
+                mark();
+                return 2;
+            }
+            TextDecoration decoration = MessageTemplate.decorationOf(code);
+            if (decoration == null) return 0;
+            decorations |= 1 << decoration.ordinal();
+            mark();
+            return 2;
+        }
+
+        // 与传统格式一致: 颜色代码会清除之前的粗体、斜体等格式
+        private void setColor(int value) {
+            color = value;
+            decorations = 0;
+            mark();
+        }
+
+        private void mark() {
+            int code = ((color + 1) << 5) | decorations;
+            runs.add(position, code, styleCache.computeIfAbsent(code, k -> buildStyle()));
+        }
+
+        private Style buildStyle() {
+            Style style;
+            if (color == NO_COLOR) {
+                style = Style.empty();
+            } else if ((color & HEX_FLAG) != 0) {
+                style = Style.style(TextColor.color(color & 0xFFFFFF));
+            } else {
+                style = Style.style(MessageTemplate.COLORS[color]);
+            }
+            for (TextDecoration decoration : TextDecoration.values()) {
+                if ((decorations & (1 << decoration.ordinal())) != 0) style = style.decoration(decoration, true);
+            }
+            return style;
+        }
+
+        private static boolean isHexRun(CharSequence in, int from) {
+            if (from + 6 > in.length()) return false;
+            for (int k = from; k < from + 6; k++) {
+                char c = in.charAt(k);
+                if (c >= 128 || Character.digit(c, 16) < 0) return false;
+            }
+            return true;
+        }
+
+        // x 之后的 6 组 "标记符 + 十六进制位", 标记符为 & 或 §
+        private static int repeatedHex(CharSequence in, int from) {
+            if (from + 12 > in.length()) return -1;
+            int rgb = 0;
+            for (int k = 0; k < 6; k++) {
+                char marker = in.charAt(from + k * 2);
+                char c = in.charAt(from + k * 2 + 1);
+                if ((marker != '&' && marker != ChatColor.COLOR_CHAR) || c >= 128 || Character.digit(c, 16) < 0) return -1;
+                rgb = (rgb << 4) | Character.digit(c, 16);
+            }
+            return rgb;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 书页组件的后处理: 把组件树展开为带完整样式的文本片段, 合并相邻的同样式片段并去掉多余的样式声明.
+// MiniMessage 的渐变与彩虹标签为每个字符生成一个子组件, 压缩后物品数据与背包同步的数据包都会明显变小
+final class ComponentCompactor {
+
+    // 原版成书单页 JSON 文本的长度上限, 超出时物品无法编码, 持有者会被断开连接
+    static final int MAX_PAGE_JSON = 32767;
+
+    private static final GsonComponentSerializer GSON = GsonComponentSerializer.gson();
+
+    private ComponentCompactor() {}
+
+    // 单页超出上限: page 从 1 开始
+    static final class PageTooLargeException extends RuntimeException {
+        final int page;
+        final int length;
+
+        PageTooLargeException(int page, int length) {
+            super("Page " + page + " serializes to " + length + " characters (limit " + MAX_PAGE_JSON + ")");
+            this.page = page;
+            this.length = length;
+        }
+    }
+
+    record Oversized(int page, int length) {}
+
+    static Component compact(Component page) {
+        List<Component> parts = new ArrayList<>();
+        Flattener flattener = new Flattener(parts);
+        // 含翻译、按键等非文本组件时无法安全展开, 保持原样
+        if (!flattener.visit(page, Style.empty())) return page;
+        flattener.flush();
+
+        if (parts.isEmpty()) return Component.empty();
+        if (parts.size() == 1) return parts.get(0);
+        // 外层格式包着逐字符着色时, 展开会把格式复制到每个字符上, 此时保留原样更短
+        Component compacted = Component.text().append(parts).build();
+        return (jsonLength(compacted) <= jsonLength(page)) ? compacted : page;
+    }
+
+    static int jsonLength(Component page) {
+        return GSON.serialize(page).length();
+    }
+
+    // 返回第一个超出单页上限的页, 没有时返回 null
+    static Oversized findOversized(List<Component> pages) {
+        for (int i = 0; i < pages.size(); i++) {
+            int length = jsonLength(pages.get(i));
+            if (length > MAX_PAGE_JSON) return new Oversized(i + 1, length);
+        }
+        return null;
+    }
+
+    // 按 JSON 文本的 UTF-8 长度估算整本书的体积, 超过 limit 后不再继续计算
+    static long estimateBytes(List<Component> pages, long limit) {
+        long total = 0;
+        for (Component page : pages) {
+            String json = GSON.serialize(page);
+            for (int i = 0; i < json.length(); i++) {
+                char c = json.charAt(i);
+                if (c < 0x80) total += 1;
+                else if (c < 0x800 || Character.isSurrogate(c)) total += 2;
+                else total += 3;
+            }
+            if (total > limit) return total;
+        }
+        return total;
+    }
+
+    private static final class Flattener {
+        private final List<Component> out;
+        private final StringBuilder pending = new StringBuilder();
+        private Style pendingStyle;
+
+        Flattener(List<Component> out) {
+            this.out = out;
+        }
+
+        boolean visit(Component node, Style inherited) {
+            if (!(node instanceof TextComponent text)) return false;
+            // 子组件未声明的样式沿用父组件
+            Style style = node.style().merge(inherited, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+            if (!text.content().isEmpty()) append(text.content(), style);
+            for (Component child : node.children()) {
+                if (!visit(child, style)) return false;
+            }
+            return true;
+        }
+
+        private void append(String content, Style style) {
+            Style normalized = normalize(style);
+            if (pendingStyle != null && !pendingStyle.equals(normalized)) flush();
+            pending.append(content);
+            pendingStyle = normalized;
+        }
+
+        void flush() {
+            if (pendingStyle == null) return;
+            out.add(Component.text(pending.toString(), pendingStyle));
+            pending.setLength(0);
+            pendingStyle = null;
+        }
+
+        // 书页的根样式不带任何格式, 展开后显式的 false 与未设置等价
+        private static Style normalize(Style style) {
+            for (TextDecoration decoration : TextDecoration.values()) {
+                if (style.decoration(decoration) == TextDecoration.State.FALSE) {
+                    style = style.decoration(decoration, TextDecoration.State.NOT_SET);
+                }
+            }
+            return style;
+        }
+    }
+}
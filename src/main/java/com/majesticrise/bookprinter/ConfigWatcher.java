@@ -0,0 +1,106 @@
+package com.majesticrise.bookprinter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+// 监听数据目录中的 config.yml 与 Language-*.yml, 变化平息一段时间后在监听线程上回调.
+// 以文件修改时间和大小为指纹, 插件自己写回文件或编辑器多次保存时不会重复触发重载
+public final class ConfigWatcher implements DirectoryWatcher.Listener, AutoCloseable {
+
+    // 编辑器保存时常伴随多次写入, 等待事件平息后再重载
+    private static final long DEBOUNCE_MILLIS = 500L;
+
+    private final DirectoryWatcher watcher;
+    private final Path root;
+    private final Consumer<String> onChange;
+    private final Map<String, String> fingerprints = new HashMap<>();
+
+    private volatile boolean closed;
+
+    // onChange 收到发生变化的文件名 (多个时以逗号分隔)
+    public ConfigWatcher(DirectoryWatcher watcher, File dataFolder, Consumer<String> onChange) throws IOException {
+        this.watcher = watcher;
+        this.root = dataFolder.toPath().toRealPath();
+        this.onChange = onChange;
+    }
+
+    public ConfigWatcher start() throws IOException {
+        synchronized (fingerprints) {
+            snapshot();
+        }
+        watcher.register(root, this, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        return this;
+    }
+
+    // 重载完成后调用, 使重载过程中插件自己写入的文件不再触发
+    public void acknowledge() {
+        synchronized (fingerprints) {
+            snapshot();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        watcher.unregister(root, this);
+    }
+
+    static boolean isWatched(String name) {
+        return name.equals("config.yml") || (name.startsWith("Language-") && name.endsWith(".yml"));
+    }
+
+    // 持续收到事件时一直顺延, 直到目录安静下来
+    @Override
+    public boolean onEvent(Path dir, WatchEvent.Kind<?> kind, Path path) {
+        return !closed && (path == null || isWatched(path.getFileName().toString()));
+    }
+
+    @Override
+    public long quietMillis() {
+        return DEBOUNCE_MILLIS;
+    }
+
+    @Override
+    public void onQuiet() {
+        if (closed) return;
+        String changed;
+        synchronized (fingerprints) {
+            changed = changedFiles();
+        }
+        if (changed != null) onChange.accept(changed);
+    }
+
+    // 返回指纹发生变化的文件, 没有变化时返回 null
+    private String changedFiles() {
+        Map<String, String> before = new HashMap<>(fingerprints);
+        snapshot();
+        TreeSet<String> changed = new TreeSet<>();
+        fingerprints.forEach((name, print) -> {
+            if (!print.equals(before.get(name))) changed.add(name);
+        });
+        return changed.isEmpty() ? null : String.join(", ", changed);
+    }
+
+    private void snapshot() {
+        fingerprints.clear();
+        File[] files = root.toFile().listFiles((dir, name) -> isWatched(name));
+        if (files == null) return;
+        for (File file : files) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                fingerprints.put(file.getName(), attrs.lastModifiedTime().toMillis() + ":" + attrs.size());
+            } catch (IOException e) {
+                // 文件正在被替换, 下次事件时再记录
+            }
+        }
+    }
+}
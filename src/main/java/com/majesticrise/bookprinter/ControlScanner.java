@@ -0,0 +1,149 @@
+package com.majesticrise.bookprinter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+
+// 在长文本中顺序查找控制字符 (最多 3 种), 普通文本整段跳过, 只在控制字符处交给解析器逐字处理.
+// 以 mvn -P vector 构建且服务器以 --add-modules jdk.incubator.vector 启动时, 按窗口把文本复制到 char[] 后
+// 用 Vector API (VectorScan) 批量比较; 否则 (或 -Dbookprinter.vector=false) 使用标量循环.
+// 向量实现首次使用前与标量实现对照自检, 不一致时同样退回标量
+final class ControlScanner {
+
+    private static final int WINDOW = 4096;
+    private static final String VECTOR_CLASS = "com.majesticrise.bookprinter.VectorScan";
+    // 普通构建中没有 VectorScan, 因此只能通过 MethodHandle 引用; 为 null 时使用标量循环
+    private static final MethodHandle VECTOR = vectorScan();
+    private static final String IMPLEMENTATION = (VECTOR != null) ? describe() : "scalar";
+
+    private final char a;
+    private final char b;
+    private final char c;
+    private final boolean vector;
+    private CharSequence text;
+    private char[] window;
+    private int windowStart;
+    private int windowEnd;
+
+    ControlScanner(char a, char b, char c) {
+        this(a, b, c, true);
+    }
+
+    // vector 为 false 时即使向量实现可用也使用标量循环, 供对照测试使用
+    ControlScanner(char a, char b, char c, boolean vector) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.vector = vector && VECTOR != null;
+    }
+
+    // 扫描新的文本 (或文本内容已变化) 前调用
+    ControlScanner reset(CharSequence text) {
+        this.text = text;
+        this.windowStart = 0;
+        this.windowEnd = 0;
+        return this;
+    }
+
+    // [from, to) 中第一个控制字符的位置, 没有时返回 to
+    int next(int from, int to) {
+        if (!vector) return scalar(text, from, to, a, b, c);
+        int i = from;
+        while (i < to) {
+            if (i < windowStart || i >= windowEnd) load(i);
+            int end = Math.min(to, windowEnd);
+            int found = vectorIndexOf(window, i - windowStart, end - windowStart, a, b, c);
+            if (found < end - windowStart) return windowStart + found;
+            i = end;
+        }
+        return to;
+    }
+
+    private void load(int from) {
+        if (window == null) window = new char[WINDOW];
+        int end = Math.min(text.length(), from + WINDOW);
+        if (text instanceof String s) {
+            s.getChars(from, end, window, 0);
+        } else if (text instanceof StringBuilder sb) {
+            sb.getChars(from, end, window, 0);
+        } else {
+            for (int k = from; k < end; k++) window[k - from] = text.charAt(k);
+        }
+        windowStart = from;
+        windowEnd = end;
+    }
+
+    static int scalar(CharSequence text, int from, int to, char a, char b, char c) {
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            if (ch == a || ch == b || ch == c) return i;
+        }
+        return to;
+    }
+
+    private static int vectorIndexOf(char[] chars, int from, int to, char a, char b, char c) {
+        try {
+            return (int) VECTOR.invokeExact(chars, from, to, a, b, c);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static boolean vectorAvailable() {
+        return VECTOR != null;
+    }
+
+    // 供 /bookprinter info 显示
+    static String implementation() {
+        return IMPLEMENTATION;
+    }
+
+    private static String describe() {
+        try {
+            return (String) MethodHandles.lookup().findStatic(Class.forName(VECTOR_CLASS), "describe",
+                    MethodType.methodType(String.class)).invokeExact();
+        } catch (Throwable t) {
+            return "vector";
+        }
+    }
+
+    private static MethodHandle vectorScan() {
+        if ("false".equalsIgnoreCase(System.getProperty("bookprinter.vector"))) return null;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            MethodHandle handle = MethodHandles.lookup().findStatic(Class.forName(VECTOR_CLASS),
+                    "indexOf", MethodType.methodType(int.class, char[].class, int.class, int.class, char.class, char.class, char.class));
+            return selfCheck(handle) ? handle : null;
+        } catch (Throwable t) {
+            // 普通构建中没有 VectorScan, 或向量实现初始化失败
+            return null;
+        }
+    }
+
+    // 随机文本上各种起止位置 (含窗口内的非对齐位置与尾部) 的结果须与标量实现完全一致
+    private static boolean selfCheck(MethodHandle handle) throws Throwable {
+        SplittableRandom random = new SplittableRandom(0x5CA11E5L);
+        char[] sample = new char[1024];
+        String controls = "&§\\\r\n <";
+        for (int round = 0; round < 8; round++) {
+            // 控制字符由密到疏, 覆盖命中在第一个向量内与跨越多个向量的情况
+            int density = 2 << (round * 2);
+            for (int i = 0; i < sample.length; i++) {
+                sample[i] = random.nextInt(density) == 0
+                        ? controls.charAt(random.nextInt(controls.length()))
+                        : (char) (random.nextBoolean() ? 'a' + random.nextInt(26) : 0x4E00 + random.nextInt(0x5000));
+            }
+            String text = new String(sample);
+            for (int from = 0; from < 96; from++) {
+                for (int to : new int[]{from, from + 1, from + 17, from + 100, sample.length}) {
+                    if ((int) handle.invokeExact(sample, from, to, '&', '§', '\r')
+                            != scalar(text, from, to, '&', '§', '\r')) return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+package com.majesticrise.bookprinter;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 数据目录共用的 WatchService 与监听线程, FileIndex 与 ConfigWatcher 在这里注册目录.
+// 同一目录可被多个监听者注册 (事件类型取并集, 按各自注册的类型分发); 需要去抖的监听者在事件平息后另行回调
+public final class DirectoryWatcher implements AutoCloseable {
+
+    // 所有回调都在监听线程上执行, 不应长时间阻塞
+    interface Listener {
+
+        // kind 为 OVERFLOW 时 path 为 null; 返回 true 时在 quietMillis 内没有新的此类事件后调用 onQuiet
+        boolean onEvent(Path dir, WatchEvent.Kind<?> kind, Path path);
+
+        // 目录已被删除或不再可监听, 注册已移除
+        default void onInvalid(Path dir) {}
+
+        default long quietMillis() {
+            return 0;
+        }
+
+        default void onQuiet() {}
+    }
+
+    private record Registration(Path dir, WatchKey key, Map<Listener, Set<WatchEvent.Kind<?>>> listeners) {}
+
+    private final Logger logger;
+    private final WatchService service;
+    private final Thread thread;
+    private final Map<Path, Registration> byDir = new HashMap<>();
+    private final Map<WatchKey, Registration> byKey = new HashMap<>();
+    // 等待事件平息的监听者 -> 回调时刻 (nanoTime), 只在监听线程上访问
+    private final Map<Listener, Long> quietAt = new HashMap<>();
+
+    private volatile boolean closed;
+
+    public DirectoryWatcher(Logger logger) throws IOException {
+        this.logger = logger;
+        this.service = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "BookPrinter-Watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public DirectoryWatcher start() {
+        thread.start();
+        return this;
+    }
+
+    // 同一目录重复注册时 WatchService 会替换事件类型, 因此每次都按全部监听者的并集注册
+    synchronized void register(Path dir, Listener listener, WatchEvent.Kind<?>... kinds) throws IOException {
+        Registration old = byDir.get(dir);
+        Map<Listener, Set<WatchEvent.Kind<?>>> listeners = (old != null) ? old.listeners() : new HashMap<>();
+        listeners.computeIfAbsent(listener, l -> new HashSet<>()).addAll(List.of(kinds));
+        Set<WatchEvent.Kind<?>> all = new HashSet<>();
+        listeners.values().forEach(all::addAll);
+
+        WatchKey key = dir.register(service, all.toArray(new WatchEvent.Kind<?>[0]));
+        if (old != null && old.key() != key) byKey.remove(old.key());
+        Registration registration = new Registration(dir, key, listeners);
+        byDir.put(dir, registration);
+        byKey.put(key, registration);
+    }
+
+    synchronized void unregister(Path dir, Listener listener) {
+        Registration registration = byDir.get(dir);
+        if (registration == null || registration.listeners().remove(listener) == null) return;
+        if (registration.listeners().isEmpty()) {
+            registration.key().cancel();
+            byDir.remove(dir);
+            byKey.remove(registration.key());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                WatchKey key = next();
+                if (key != null) dispatch(key);
+                fireQuiet();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 插件关闭
+        }
+    }
+
+    // 有监听者在等待事件平息时最多等到最早的回调时刻
+    private WatchKey next() throws InterruptedException {
+        if (quietAt.isEmpty()) return service.take();
+        long wait = Collections.min(quietAt.values()) - System.nanoTime();
+        return service.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(WatchKey key) {
+        List<WatchEvent<?>> events = key.pollEvents();
+        boolean valid = key.reset();
+        Path dir;
+        Map<Listener, Set<WatchEvent.Kind<?>>> listeners = new HashMap<>();
+        synchronized (this) {
+            Registration registration = byKey.get(key);
+            if (registration == null) return;
+            dir = registration.dir();
+            registration.listeners().forEach((listener, kinds) -> listeners.put(listener, Set.copyOf(kinds)));
+            if (!valid) {
+                byKey.remove(key);
+                byDir.remove(dir, registration);
+            }
+        }
+
+        for (WatchEvent<?> event : events) {
+            WatchEvent.Kind<?> kind = event.kind();
+            Path path = (kind == StandardWatchEventKinds.OVERFLOW) ? null : dir.resolve((Path) event.context());
+            listeners.forEach((listener, kinds) -> {
+                if (path != null && !kinds.contains(kind)) return;
+                try {
+                    if (listener.onEvent(dir, kind, path) && listener.quietMillis() > 0) {
+                        quietAt.put(listener, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(listener.quietMillis()));
+                    }
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Directory watcher callback failed", e);
+                }
+            });
+        }
+        if (!valid) {
+            for (Listener listener : listeners.keySet()) {
+                try {
+                    listener.onInvalid(dir);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Directory watcher callback failed", e);
+                }
+            }
+        }
+    }
+
+    private void fireQuiet() {
+        if (quietAt.isEmpty()) return;
+        long now = System.nanoTime();
+        List<Listener> due = new ArrayList<>();
+        for (Iterator<Map.Entry<Listener, Long>> it = quietAt.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Listener, Long> entry = it.next();
+            if (entry.getValue() - now > 0) continue;
+            due.add(entry.getKey());
+            it.remove();
+        }
+        for (Listener listener : due) {
+            try {
+                listener.onQuiet();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Directory watcher callback failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.majesticrise.bookprinter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 数据目录的后台索引: 由共用的 DirectoryWatcher 维护 .txt 文件列表, 规范路径在后台线程中解析,
+// 命令线程上的 Tab 补全和路径校验只查内存, 不访问文件系统. 首次扫描在独立线程上进行, 与事件处理互斥
+public final class FileIndex implements DirectoryWatcher.Listener, AutoCloseable {
+
+    private static final String EXTENSION = ".txt";
+    // 目录层级上限, 防止异常的目录结构拖慢扫描
+    private static final int MAX_DEPTH = 16;
+
+    private final DirectoryWatcher watcher;
+    private final Path root;
+    private final boolean recursive;
+    private final Logger logger;
+
+    // 相对路径 ('/' 分隔) -> 已通过校验的规范文件
+    private final Map<String, File> files = new ConcurrentHashMap<>();
+    // 小写相对路径 -> 相对路径, 有序以支持前缀查询
+    private final ConcurrentSkipListMap<String, String> byLowerName = new ConcurrentSkipListMap<>();
+    // 已注册监听的目录, 只在持有 this 锁时访问
+    private final Set<Path> directories = new HashSet<>();
+    private final ConcurrentSkipListSet<String> excluded = new ConcurrentSkipListSet<>();
+
+    private volatile boolean ready;
+    private volatile boolean closed;
+
+    public FileIndex(DirectoryWatcher watcher, File dataFolder, boolean recursive, Logger logger) throws IOException {
+        this.watcher = watcher;
+        this.root = dataFolder.toPath().toRealPath();
+        this.recursive = recursive;
+        this.logger = logger;
+    }
+
+    // 不参与索引的一级子目录 (如插件自己的缓存目录)
+    public FileIndex exclude(String directoryName) {
+        excluded.add(directoryName);
+        return this;
+    }
+
+    public FileIndex start() {
+        Thread thread = new Thread(this::initialScan, "BookPrinter-FileIndex");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // 返回已索引且位于数据目录内的文件; 未命中时返回 null, 调用方需自行校验
+    public File resolve(String relativeName) {
+        if (!ready || relativeName == null) return null;
+        return files.get(relativeName.replace('\\', '/'));
+    }
+
+    // 不区分大小写的前缀查询
+    public List<String> complete(String prefix) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+        for (String name : byLowerName.tailMap(from, true).values()) {
+            if (!name.toLowerCase(Locale.ROOT).startsWith(from)) break;
+            result.add(name);
+        }
+        return result;
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    // 先置位再加锁, 正在进行的首次扫描会尽快结束
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            for (Path dir : directories) watcher.unregister(dir, this);
+            directories.clear();
+        }
+    }
+
+    private synchronized void initialScan() {
+        if (closed) return;
+        try {
+            rescan();
+            ready = !closed;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean onEvent(Path dir, WatchEvent.Kind<?> kind, Path path) {
+        if (closed || !directories.contains(dir)) return false;
+        try {
+            if (path == null) {
+                rescan();
+            } else {
+                handle(dir, kind, path);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void onInvalid(Path dir) {
+        if (directories.remove(dir)) removeUnder(dir);
+    }
+
+    // 停止维护索引, 调用方回退到直接访问文件系统
+    private void fail(IOException e) {
+        logger.log(Level.WARNING, "File index stopped, falling back to direct file lookups", e);
+        ready = false;
+        close();
+    }
+
+    private void rescan() throws IOException {
+        for (Path dir : directories) watcher.unregister(dir, this);
+        directories.clear();
+        files.clear();
+        byLowerName.clear();
+        scan(root, 0);
+    }
+
+    private void scan(Path dir, int depth) throws IOException {
+        watcher.register(dir, this, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        directories.add(dir);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                if (closed) return;
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    if (shouldDescend(child, depth)) scan(child, depth + 1);
+                } else {
+                    add(child);
+                }
+            }
+        }
+    }
+
+    private void handle(Path dir, WatchEvent.Kind<?> kind, Path path) throws IOException {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            remove(path);
+            removeUnder(path);
+            return;
+        }
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            int depth = dir.equals(root) ? 0 : root.relativize(dir).getNameCount();
+            if (shouldDescend(path, depth)) scan(path, depth + 1);
+        } else {
+            add(path);
+        }
+    }
+
+    private boolean shouldDescend(Path dir, int depth) {
+        if (!recursive || depth >= MAX_DEPTH) return false;
+        return !(dir.getParent().equals(root) && excluded.contains(dir.getFileName().toString()));
+    }
+
+    private void add(Path path) {
+        String name = relative(path);
+        if (!name.toLowerCase(Locale.ROOT).endsWith(EXTENSION)) return;
+        try {
+            // 与命令中的规范路径校验一致: 解析符号链接后仍须位于数据目录内
+            Path real = path.toRealPath();
+            if (!real.startsWith(root) || !Files.isRegularFile(real)) return;
+            files.put(name, real.toFile());
+            byLowerName.put(name.toLowerCase(Locale.ROOT) + '\0' + name, name);
+        } catch (IOException e) {
+            // 文件已被删除或无法访问, 交给命令执行时的回退校验
+        }
+    }
+
+    private void remove(Path path) {
+        String name = relative(path);
+        if (files.remove(name) != null) {
+            byLowerName.remove(name.toLowerCase(Locale.ROOT) + '\0' + name);
+        }
+    }
+
+    private void removeUnder(Path dir) {
+        String prefix = relative(dir) + '/';
+        files.keySet().removeIf(name -> {
+            if (!name.startsWith(prefix)) return false;
+            byLowerName.remove(name.toLowerCase(Locale.ROOT) + '\0' + name);
+            return true;
+        });
+        directories.removeIf(registered -> {
+            if (!registered.startsWith(dir)) return false;
+            watcher.unregister(registered, this);
+            return true;
+        });
+    }
+
+    private String relative(Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+}
@@ -0,0 +1,77 @@
+package com.majesticrise.bookprinter;
+
+import java.util.Arrays;
+
+// 原版默认字体的字符步进宽度 (像素, 含 1 像素字间距), 供 width 分页策略模拟成书界面的换行.
+// BMP 字符查表, 其余码点按区间判断; 粗体每个字符额外占 1 像素
+final class GlyphWidths {
+
+    // 成书界面每行可用宽度
+    static final int BOOK_WIDTH = 114;
+
+    private static final int DEFAULT = 6;
+    private static final int WIDE = 9;
+    private static final byte[] BMP = new byte[0x10000];
+
+    // 禁止出现在行首 / 页首的标点, 以及禁止出现在行尾 / 页尾的标点
+    private static final String NO_BREAK_BEFORE =
+            "!%),.:;?]}¢°·’”‰′″℃〃々〆〉》」』】〕〗〙〛〜゛゜ゝゞ・ヽヾ！％），．：；？］｝｡｣､･ｰ、。ー—…"
+                    + "ぁぃぅぇぉっゃゅょゎァィゥェォッャュョヮヵヶ";
+    private static final String NO_BREAK_AFTER = "$([{£¥‘“〈《「『【〔〖〘〚＄（［｛｢￡￥";
+
+    static {
+        Arrays.fill(BMP, (byte) DEFAULT);
+        // ASCII 字形像素宽度 (不含间距), 从空格 (0x20) 到 ~ (0x7E)
+        String ascii = " !\"#$%&'()*+,-./0123456789:;<=>?@ABCDEFGHIJKLMNOPQRSTUVWXYZ[\\]^_`abcdefghijklmnopqrstuvwxyz{|}~";
+        int[] pixels = {
+                3, 1, 3, 5, 5, 5, 5, 1, 4, 4, 5, 5, 1, 5, 1, 5,
+                5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 1, 1, 4, 5, 4, 5,
+                6, 5, 5, 5, 5, 5, 5, 5, 5, 3, 5, 5, 5, 5, 5, 5,
+                5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 3, 5, 3, 5, 5,
+                2, 5, 5, 5, 5, 5, 4, 5, 5, 1, 5, 4, 2, 5, 5, 5,
+                5, 5, 5, 5, 3, 5, 5, 5, 5, 5, 5, 4, 1, 4, 5};
+        for (int i = 0; i < ascii.length(); i++) BMP[ascii.charAt(i)] = (byte) (pixels[i] + 1);
+
+        fill(0x0000, 0x001F, 0);
+        fill(0x007F, 0x009F, 0);
+        // 组合附加符号、零宽字符与变体选择符
+        fill(0x0300, 0x036F, 0);
+        fill(0x200B, 0x200F, 0);
+        fill(0xFE00, 0xFE0F, 0);
+        // 全角字符: 谚文字母、中日韩符号与表意文字、谚文音节、兼容表意文字、全角形式
+        fill(0x1100, 0x115F, WIDE);
+        fill(0x2E80, 0xA4CF, WIDE);
+        fill(0xAC00, 0xD7A3, WIDE);
+        fill(0xF900, 0xFAFF, WIDE);
+        fill(0xFE30, 0xFE4F, WIDE);
+        fill(0xFF00, 0xFF60, WIDE);
+        fill(0xFFE0, 0xFFE6, WIDE);
+    }
+
+    private GlyphWidths() {}
+
+    private static void fill(int from, int to, int width) {
+        Arrays.fill(BMP, from, to + 1, (byte) width);
+    }
+
+    static int advance(int codePoint, boolean bold) {
+        int width;
+        if (codePoint < 0x10000) {
+            width = BMP[codePoint];
+        } else if ((codePoint >= 0x1F300 && codePoint <= 0x1FAFF) || (codePoint >= 0x20000 && codePoint <= 0x3FFFF)) {
+            // 表情符号与扩展区表意文字
+            width = WIDE;
+        } else {
+            width = DEFAULT;
+        }
+        return (bold && width > 0) ? width + 1 : width;
+    }
+
+    static boolean noBreakBefore(int codePoint) {
+        return codePoint < 0x10000 && NO_BREAK_BEFORE.indexOf(codePoint) >= 0;
+    }
+
+    static boolean noBreakAfter(int codePoint) {
+        return codePoint < 0x10000 && NO_BREAK_AFTER.indexOf(codePoint) >= 0;
+    }
+}
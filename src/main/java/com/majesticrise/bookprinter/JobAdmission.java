@@ -0,0 +1,215 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 生成任务的准入控制: 固定数量的工作线程加有界等待队列, 队列满时直接拒绝;
+// 按玩家限制请求频率; 同一文件同一配置的进行中任务共享一次解析结果 (single-flight).
+// 虚拟线程模式下每个任务一个虚拟线程, 读取文件等 I/O 阶段不占名额, 只有 compute() 包裹的分页与渲染受 max_concurrent 限制
+public final class JobAdmission implements AutoCloseable {
+
+    private static final int PRUNE_THRESHOLD = 256;
+    // 等待其他任务的结果或计算名额时, 每隔这么久检查一次本任务是否已取消
+    private static final long POLL_MILLIS = 100L;
+
+    private final ExecutorService executor;
+    private final int maxConcurrent;
+    private final int queueSize;
+    // 仅虚拟线程模式: 已接受 (执行中与排队) 的任务名额, 以及分页渲染的计算名额
+    private final Semaphore slots;
+    private final Semaphore compute;
+    private final long cooldownMillis;
+    private final Map<UUID, Long> lastAccepted = new ConcurrentHashMap<>();
+    private final Map<BookCache.Key, CompletableFuture<List<Component>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public JobAdmission(int maxConcurrent, int queueSize, long cooldownMillis, boolean virtualThreads) {
+        int threads = Math.max(1, maxConcurrent);
+        int queue = Math.max(1, queueSize);
+        this.maxConcurrent = threads;
+        this.queueSize = queue;
+        if (virtualThreads) {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BookPrinter-Worker-", 1).factory());
+            this.slots = new Semaphore(threads + queue);
+            this.compute = new Semaphore(threads, true);
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queue), r -> {
+                        Thread thread = new Thread(r, "BookPrinter-Worker-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.slots = null;
+            this.compute = null;
+        }
+        this.cooldownMillis = Math.max(0L, cooldownMillis);
+    }
+
+    // 返回还需等待的毫秒数; 返回 0 时本次请求已被记录
+    public long acquireCooldown(CommandSender sender) {
+        if (cooldownMillis == 0 || !(sender instanceof Player player)) return 0;
+        long now = System.currentTimeMillis();
+        if (lastAccepted.size() > PRUNE_THRESHOLD) {
+            lastAccepted.values().removeIf(t -> now - t >= cooldownMillis);
+        }
+
+        long[] wait = {0};
+        lastAccepted.compute(player.getUniqueId(), (id, last) -> {
+            if (last != null && now - last < cooldownMillis) {
+                wait[0] = cooldownMillis - (now - last);
+                return last;
+            }
+            return now;
+        });
+        return wait[0];
+    }
+
+    // 请求被拒绝时退还冷却
+    public void releaseCooldown(CommandSender sender) {
+        if (sender instanceof Player player) lastAccepted.remove(player.getUniqueId());
+    }
+
+    // 队列已满时返回 false
+    public boolean submit(Runnable job) {
+        if (slots != null && !slots.tryAcquire()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute(slots == null ? job : () -> {
+                try {
+                    job.run();
+                } finally {
+                    slots.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (slots != null) slots.release();
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    // 分页、渲染等 CPU 密集的阶段; 固定线程池模式下直接执行, 虚拟线程模式下先取得计算名额, 等待期间检查 cancel
+    <T, E extends Exception> T compute(CancelToken cancel, Work<T, E> task) throws E {
+        if (compute == null) return task.call();
+        try {
+            while (!compute.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                cancel.check(-1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a compute slot");
+        }
+        try {
+            return task.call();
+        } finally {
+            compute.release();
+        }
+    }
+
+    // 相同 key 的任务正在执行时等待其结果, 否则由当前线程执行 loader;
+    // 执行 loader 的任务被取消而本任务 (cancel) 仍在进行时, 重新发起一次
+    List<Component> coalesce(BookCache.Key key, CancelToken cancel, Callable<List<Component>> loader) throws Exception {
+        CompletableFuture<List<Component>> mine = new CompletableFuture<>();
+        CompletableFuture<List<Component>> existing;
+        while ((existing = inFlight.putIfAbsent(key, mine)) != null) {
+            coalesced.incrementAndGet();
+            try {
+                return await(existing, cancel);
+            } catch (JobManager.CancelledException e) {
+                cancel.check(-1);
+            }
+        }
+
+        try {
+            List<Component> result = loader.call();
+            mine.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static List<Component> await(CompletableFuture<List<Component>> future, CancelToken cancel) throws Exception {
+        while (true) {
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                cancel.check(-1);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
+        }
+    }
+
+    // 虚拟线程模式下为正在分页渲染的任务数
+    public int active() {
+        if (compute == null) return ((ThreadPoolExecutor) executor).getActiveCount();
+        return maxConcurrent - compute.availablePermits();
+    }
+
+    // 虚拟线程模式下包括正在读取文件、等待计算名额的任务
+    public int queued() {
+        if (slots == null) return ((ThreadPoolExecutor) executor).getQueue().size();
+        return Math.max(0, maxConcurrent + queueSize - slots.availablePermits() - active());
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    // 已排队的任务仍会执行完毕
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // close() 之后等待工作线程结束, 返回是否已全部结束; 关服时先取消全部任务, 它们会在下一个检查点结束
+    boolean awaitTermination(long timeoutMillis) {
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.majesticrise.bookprinter;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 生成任务登记: 每个任务从提交到结束都有编号、来源、当前阶段与已分页数, 可以列出、取消或超时.
+// 取消是协作式的: Job 作为 CancelToken 显式传给分页与渲染, 在检查点上任务已取消或超过期限时抛出 CancelledException
+final class JobManager {
+
+    enum Kind { PRINT, GIVE, PREVIEW, INSPECT, API }
+
+    enum Reason { CANCELLED, TIMEOUT, DISCONNECTED, SHUTDOWN }
+
+    static final class CancelledException extends RuntimeException {
+        final Reason reason;
+
+        CancelledException(Job job, Reason reason) {
+            super("Job #" + job.id + " " + reason.name().toLowerCase(Locale.ROOT), null, false, false);
+            this.reason = reason;
+        }
+    }
+
+    static final class Job implements CancelToken {
+        final long id;
+        final Kind kind;
+        final String file;
+        // 控制台与其他插件提交的任务为 null
+        final UUID owner;
+        final String ownerName;
+        final long submittedNanos;
+        // 0 表示不限时
+        final long deadlineNanos;
+        private final AtomicInteger pages = new AtomicInteger();
+        private volatile PrintMetrics.Stage stage = PrintMetrics.Stage.QUEUE_WAIT;
+        private volatile Reason cancelled;
+
+        private Job(long id, Kind kind, String file, CommandSender sender, long timeoutMillis) {
+            this.id = id;
+            this.kind = kind;
+            this.file = file;
+            this.owner = (sender instanceof Player player) ? player.getUniqueId() : null;
+            this.ownerName = (sender != null) ? sender.getName() : "API";
+            this.submittedNanos = System.nanoTime();
+            this.deadlineNanos = (timeoutMillis > 0) ? submittedNanos + timeoutMillis * 1_000_000L : 0L;
+        }
+
+        PrintMetrics.Stage stage() {
+            return stage;
+        }
+
+        // 进入新阶段前检查一次是否已取消
+        void stage(PrintMetrics.Stage stage) {
+            this.stage = stage;
+            checkpoint();
+        }
+
+        int pages() {
+            return pages.get();
+        }
+
+        long elapsedMillis() {
+            return (System.nanoTime() - submittedNanos) / 1_000_000L;
+        }
+
+        // 只记录第一次取消的原因
+        boolean cancel(Reason reason) {
+            synchronized (this) {
+                if (cancelled != null) return false;
+                cancelled = reason;
+                return true;
+            }
+        }
+
+        Reason cancelled() {
+            Reason reason = cancelled;
+            if (reason == null && deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0) {
+                cancel(Reason.TIMEOUT);
+                reason = cancelled;
+            }
+            return reason;
+        }
+
+        void checkpoint() {
+            Reason reason = cancelled();
+            if (reason != null) throw new CancelledException(this, reason);
+        }
+
+        // 分页器每交付一页调用一次, 同时更新进度; 渲染线程上以 -1 调用
+        @Override
+        public void check(int pages) {
+            if (pages >= 0) this.pages.set(pages);
+            checkpoint();
+        }
+    }
+
+    // 在工作线程上执行的任务体, 取消检查通过 job 进行
+    @FunctionalInterface
+    interface Task<T> {
+        T run(Job job) throws Exception;
+    }
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Job> jobs = new ConcurrentSkipListMap<>();
+    private final Map<Reason, AtomicLong> cancelled = new ConcurrentSkipListMap<>();
+
+    Job register(Kind kind, String file, CommandSender sender, long timeoutMillis) {
+        Job job = new Job(ids.incrementAndGet(), kind, file, sender, timeoutMillis);
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    // 工作线程开始执行 job; 排队期间已被取消 (如关服) 的任务在这里直接结束
+    void enter(Job job) {
+        job.stage(PrintMetrics.Stage.RESOLVE);
+    }
+
+    // 任务结束 (完成、失败、取消或未被队列接受) 后调用
+    void exit(Job job) {
+        jobs.remove(job.id);
+        Reason reason = job.cancelled;
+        if (reason != null) cancelled.computeIfAbsent(reason, r -> new AtomicLong()).incrementAndGet();
+    }
+
+    Job get(long id) {
+        return jobs.get(id);
+    }
+
+    // 按编号升序
+    List<Job> list() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    long cancelledCount(Reason reason) {
+        AtomicLong count = cancelled.get(reason);
+        return (count != null) ? count.get() : 0L;
+    }
+
+    // 玩家退出时取消其发起的、结果只交给本人的任务; 批量发放仍继续发给其他玩家
+    void cancelOwnedBy(UUID owner) {
+        for (Job job : jobs.values()) {
+            if (owner.equals(job.owner) && job.kind != Kind.GIVE) job.cancel(Reason.DISCONNECTED);
+        }
+    }
+
+    void cancelAll(Reason reason) {
+        for (Job job : jobs.values()) job.cancel(reason);
+    }
+}
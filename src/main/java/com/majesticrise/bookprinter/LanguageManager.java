@@ -1,76 +1,150 @@
 package com.majesticrise.bookprinter;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.ChatColor;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.entity.Player;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
+// 消息目录: 启动或重载时加载数据目录下所有 Language-*.yml 并预编译为模板,
+// 按接收者的客户端语言选择消息, 找不到对应语言时使用 config.yml 中的 language
 public class LanguageManager {
 
-    private final JavaPlugin plugin;
-    private FileConfiguration langConfig;
-    private final LegacyComponentSerializer serializer = LegacyComponentSerializer.legacySection();
+    private static final String FILE_PREFIX = "Language-";
+    private static final String FILE_SUFFIX = ".yml";
+    // 缺失的键只输出前缀, 与旧版行为一致
+    private static final String MISSING = "";
 
-    public LanguageManager(JavaPlugin plugin) {
-        this.plugin = plugin;
+    private final Logger logger;
+
+    private volatile Map<String, Map<String, MessageTemplate>> catalogues = Map.of();
+    private volatile Map<String, MessageTemplate> defaults;
+    private volatile boolean perPlayerLocale;
+    private volatile Map<Locale, Map<String, MessageTemplate>> localeCache = new ConcurrentHashMap<>();
+
+    public LanguageManager(Logger logger) {
+        this.logger = logger;
     }
 
-    public void load() {
-        String langCode = plugin.getConfig().getString("language", "zh_CN");
-        String fileName = "Language-" + langCode + ".yml";
-        File langFile = new File(plugin.getDataFolder(), fileName);
-
-        if (!langFile.exists()) {
-            plugin.saveResource(fileName, false);
-            if (!langFile.exists()) {
-                plugin.getLogger().warning("Language file '" + fileName + "' not found in plugin jar, falling back to default.");
-                fileName = "Language-en_US.yml";
-                plugin.saveResource(fileName, false);
-                langFile = new File(plugin.getDataFolder(), fileName);
+    // 加载目录下所有 Language-*.yml, language 为默认语言; 对应文件不存在时使用 en_US.
+    // 插件在启动与重载时调用, 基准测试等离线场景也通过这里加载
+    public void load(File folder, String language, boolean perPlayerLocale) {
+        String langCode = language;
+        if (!new File(folder, FILE_PREFIX + langCode + FILE_SUFFIX).exists()) {
+            logger.warning("Language file '" + FILE_PREFIX + langCode + FILE_SUFFIX + "' not found, falling back to default.");
+            langCode = "en_US";
+        }
+
+        Map<String, Map<String, MessageTemplate>> loaded = new HashMap<>();
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                String code = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length());
+                try {
+                    loaded.put(normalize(code), compile(YamlConfiguration.loadConfiguration(file)));
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "Failed to load language file: " + name, e);
+                }
             }
         }
 
-        try {
-            this.langConfig = YamlConfiguration.loadConfiguration(langFile);
-            plugin.getLogger().info("Loaded language: " + langCode);
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load language file: " + fileName, e);
+        this.catalogues = Map.copyOf(loaded);
+        this.defaults = loaded.get(normalize(langCode));
+        this.perPlayerLocale = perPlayerLocale;
+        this.localeCache = new ConcurrentHashMap<>();
+        logger.info("Loaded language: " + langCode + " (" + loaded.size() + " available)");
+    }
+
+    // 将一个语言文件中的所有消息与前缀拼接后编译
+    public static Map<String, MessageTemplate> compile(ConfigurationSection yaml) {
+        String prefix = yaml.getString("prefix", "");
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (String key : yaml.getKeys(false)) {
+            if (!yaml.isString(key)) continue;
+            templates.put(key, MessageTemplate.compile(
+                    ChatColor.translateAlternateColorCodes('&', prefix + yaml.getString(key, ""))));
         }
+        templates.put(MISSING, MessageTemplate.compile(ChatColor.translateAlternateColorCodes('&', prefix)));
+        return Map.copyOf(templates);
     }
 
     public String getRaw(String key) {
-        if (langConfig == null) return key;
-        String prefix = langConfig.getString("prefix", "");
-        String msg = langConfig.getString(key, "");
-
-        return ChatColor.translateAlternateColorCodes('&', prefix + msg);
+        MessageTemplate template = find(defaults, key);
+        return template != null ? template.raw() : key;
     }
 
     public String getRaw(String key, Map<String, String> placeholders) {
-        String raw = getRaw(key);
-        if (placeholders != null) {
-            for (Map.Entry<String, String> entry : placeholders.entrySet()) {
-                raw = raw.replace("{" + entry.getKey() + "}", entry.getValue());
-            }
-        }
-        return raw;
+        MessageTemplate template = find(defaults, key);
+        return template != null ? template.raw(placeholders) : key;
     }
 
     public Component get(String key) {
-        return serializer.deserialize(getRaw(key));
+        return get((CommandSender) null, key, null);
     }
 
     public Component get(String key, Map<String, String> placeholders) {
-        return serializer.deserialize(getRaw(key, placeholders));
+        return get((CommandSender) null, key, placeholders);
+    }
+
+    public Component get(CommandSender recipient, String key) {
+        return get(recipient, key, null);
+    }
+
+    public Component get(CommandSender recipient, String key, Map<String, String> placeholders) {
+        Map<String, MessageTemplate> catalogue = catalogueFor(recipient);
+        // 玩家语言缺少的键回退到默认语言
+        MessageTemplate template = (catalogue != null && catalogue != defaults) ? catalogue.get(key) : null;
+        if (template == null) template = find(defaults, key);
+        if (template == null) return Component.text(key);
+        return template.component(placeholders);
+    }
+
+    private Map<String, MessageTemplate> catalogueFor(CommandSender recipient) {
+        if (!perPlayerLocale || !(recipient instanceof Player player)) return defaults;
+        Locale locale = player.locale();
+        if (locale == null) return defaults;
+        return localeCache.computeIfAbsent(locale, this::resolve);
+    }
+
+    // 先按 语言_地区 精确匹配, 再按语言匹配
+    private Map<String, MessageTemplate> resolve(Locale locale) {
+        Map<String, Map<String, MessageTemplate>> all = catalogues;
+        Map<String, MessageTemplate> exact = all.get(normalize(locale.toString()));
+        if (exact != null) return exact;
+
+        String language = locale.getLanguage().toLowerCase(Locale.ROOT);
+        Map<String, MessageTemplate> def = defaults;
+        Map<String, MessageTemplate> match = null;
+        for (Map.Entry<String, Map<String, MessageTemplate>> entry : all.entrySet()) {
+            if (!languageOf(entry.getKey()).equals(language)) continue;
+            if (entry.getValue() == def) return def;
+            if (match == null) match = entry.getValue();
+        }
+        return match != null ? match : def;
+    }
+
+    private static MessageTemplate find(Map<String, MessageTemplate> catalogue, String key) {
+        if (catalogue == null) return null;
+        MessageTemplate template = catalogue.get(key);
+        return template != null ? template : catalogue.get(MISSING);
+    }
+
+    private static String normalize(String code) {
+        return code.replace('-', '_').toLowerCase(Locale.ROOT);
     }
 
-    public void reload() {
-        load();
+    private static String languageOf(String code) {
+        int sep = code.indexOf('_');
+        return sep >= 0 ? code.substring(0, sep) : code;
     }
 }
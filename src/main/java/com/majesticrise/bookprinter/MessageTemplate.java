@@ -0,0 +1,219 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// 预编译的消息模板: 颜色代码在加载时解析为带样式的组件片段, {占位符} 编译为槽位,
+// 发送消息时只需往槽位里填值, 无需再次解析文本. 值中带有 § 颜色代码时与旧版一致, 代码同样生效
+public final class MessageTemplate {
+
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
+            .character(ChatColor.COLOR_CHAR)
+            .hexColors()
+            .useUnusualXRepeatedCharacterHexFormat()
+            .build();
+
+    static final NamedTextColor[] COLORS = {
+            NamedTextColor.BLACK, NamedTextColor.DARK_BLUE, NamedTextColor.DARK_GREEN, NamedTextColor.DARK_AQUA,
+            NamedTextColor.DARK_RED, NamedTextColor.DARK_PURPLE, NamedTextColor.GOLD, NamedTextColor.GRAY,
+            NamedTextColor.DARK_GRAY, NamedTextColor.BLUE, NamedTextColor.GREEN, NamedTextColor.AQUA,
+            NamedTextColor.RED, NamedTextColor.LIGHT_PURPLE, NamedTextColor.YELLOW, NamedTextColor.WHITE
+    };
+
+    private record Slot(String name, Style style) {}
+
+    // 组件片段: Component 或 Slot
+    private final List<Object> parts;
+    // 纯文本片段: String 或 Slot (用于日志输出)
+    private final List<Object> rawParts;
+    private final Component prebuilt;
+    private final String raw;
+
+    private MessageTemplate(List<Object> parts, List<Object> rawParts, String raw) {
+        this.parts = parts;
+        this.rawParts = rawParts;
+        this.raw = raw;
+        this.prebuilt = hasSlots(parts) ? null : join(parts, Map.of());
+    }
+
+    // text 为已将 & 转换为 § 的消息
+    public static MessageTemplate compile(String text) {
+        List<Object> parts = new ArrayList<>();
+        List<Object> rawParts = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int rawStart = 0;
+        Style style = Style.empty();
+
+        final int len = text.length();
+        int i = 0;
+        while (i < len) {
+            char c = text.charAt(i);
+
+            if (c == ChatColor.COLOR_CHAR && i + 1 < len) {
+                char code = Character.toLowerCase(text.charAt(i + 1));
+                int consumed = 2;
+                Style next;
+                if (code == 'x' && isHexSequence(text, i + 2)) {
+                    next = Style.style(TextColor.color(parseHexSequence(text, i + 2)));
+                    consumed = 14;
+                } else if (code < 128 && Character.digit(code, 16) >= 0) {
+                    next = Style.style(COLORS[Character.digit(code, 16)]);
+                } else if (code == 'r') {
+                    next = Style.empty();
+                } else {
+                    TextDecoration decoration = decorationOf(code);
+                    if (decoration == null) {
+                        run.append(c);
+                        i++;
+                        continue;
+                    }
+                    next = style.decoration(decoration, true);
+                }
+                flush(run, style, parts);
+                style = next;
+                i += consumed;
+                continue;
+            }
+
+            if (c == '{') {
+                int close = placeholderEnd(text, i);
+                if (close > 0) {
+                    Slot slot = new Slot(text.substring(i + 1, close), style);
+                    flush(run, style, parts);
+                    parts.add(slot);
+                    rawParts.add(text.substring(rawStart, i));
+                    rawParts.add(slot);
+                    rawStart = close + 1;
+                    i = close + 1;
+                    continue;
+                }
+            }
+
+            run.append(c);
+            i++;
+        }
+        flush(run, style, parts);
+        rawParts.add(text.substring(rawStart));
+        return new MessageTemplate(List.copyOf(parts), List.copyOf(rawParts), text);
+    }
+
+    public String raw() {
+        return raw;
+    }
+
+    public String raw(Map<String, String> placeholders) {
+        if (placeholders == null || rawParts.size() == 1) return raw;
+        StringBuilder sb = new StringBuilder(raw.length() + 16);
+        for (Object part : rawParts) {
+            if (part instanceof Slot slot) {
+                sb.append(valueOf(slot, placeholders));
+            } else {
+                sb.append((String) part);
+            }
+        }
+        return sb.toString();
+    }
+
+    public Component component() {
+        return prebuilt != null ? prebuilt : join(parts, Map.of());
+    }
+
+    public Component component(Map<String, String> placeholders) {
+        if (prebuilt != null) return prebuilt;
+        Map<String, String> values = placeholders != null ? placeholders : Map.of();
+        // 值中的颜色代码会延续到其后的模板文本, 无法只填槽位, 整条消息按旧方式替换后再解析
+        if (hasColorCodes(values)) return LEGACY.deserialize(raw(values));
+        return join(parts, values);
+    }
+
+    private static Component join(List<Object> parts, Map<String, String> placeholders) {
+        if (parts.isEmpty()) return Component.empty();
+        if (parts.size() == 1 && parts.get(0) instanceof Component single) return single;
+
+        List<Component> children = new ArrayList<>(parts.size());
+        for (Object part : parts) {
+            if (part instanceof Slot slot) {
+                children.add(Component.text(valueOf(slot, placeholders), slot.style()));
+            } else {
+                children.add((Component) part);
+            }
+        }
+        return Component.text().append(children).build();
+    }
+
+    private static String valueOf(Slot slot, Map<String, String> placeholders) {
+        String value = placeholders.get(slot.name());
+        return value != null ? value : "{" + slot.name() + "}";
+    }
+
+    private boolean hasColorCodes(Map<String, String> placeholders) {
+        for (Object part : parts) {
+            if (part instanceof Slot slot) {
+                String value = placeholders.get(slot.name());
+                if (value != null && value.indexOf(ChatColor.COLOR_CHAR) >= 0) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSlots(List<Object> parts) {
+        for (Object part : parts) {
+            if (part instanceof Slot) return true;
+        }
+        return false;
+    }
+
+    private static void flush(StringBuilder run, Style style, List<Object> parts) {
+        if (run.length() == 0) return;
+        parts.add(Component.text(run.toString(), style));
+        run.setLength(0);
+    }
+
+    private static int placeholderEnd(String text, int open) {
+        for (int i = open + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '}') return i > open + 1 ? i : -1;
+            if (!(Character.isLetterOrDigit(c) || c == '_')) return -1;
+        }
+        return -1;
+    }
+
+    static TextDecoration decorationOf(char code) {
+        return switch (code) {
+            case 'k' -> TextDecoration.OBFUSCATED;
+            case 'l' -> TextDecoration.BOLD;
+            case 'm' -> TextDecoration.STRIKETHROUGH;
+            case 'n' -> TextDecoration.UNDERLINED;
+            case 'o' -> TextDecoration.ITALIC;
+            default -> null;
+        };
+    }
+
+    // §x§R§R§G§G§B§B 中 §x 之后的 12 个字符
+    private static boolean isHexSequence(String text, int from) {
+        if (from + 12 > text.length()) return false;
+        for (int k = 0; k < 6; k++) {
+            if (text.charAt(from + k * 2) != ChatColor.COLOR_CHAR) return false;
+            char c = text.charAt(from + k * 2 + 1);
+            if (c >= 128 || Character.digit(c, 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static int parseHexSequence(String text, int from) {
+        int rgb = 0;
+        for (int k = 0; k < 6; k++) {
+            rgb = (rgb << 4) | Character.digit(text.charAt(from + k * 2 + 1), 16);
+        }
+        return rgb;
+    }
+}
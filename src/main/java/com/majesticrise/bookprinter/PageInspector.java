@@ -0,0 +1,108 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+// /bookprinter inspect: 按与生成相同的分页和渲染流程处理文件, 但不使用缓存、不生成物品,
+// 逐页记录可见字符数、断页原因、组件节点数与序列化体积, 以及读取、分页、渲染各阶段的耗时
+final class PageInspector {
+
+    private PageInspector() {}
+
+    // jsonChars 与单页上限 ComponentCompactor.MAX_PAGE_JSON 比较; bytes 为 UTF-8 体积
+    record PageStat(int page, int codePoints, String breakRule, int nodes, int jsonChars, long bytes) {}
+
+    record Report(String mode, long fileBytes, List<PageStat> pages,
+                  long readNanos, long paginateNanos, long renderNanos) {
+
+        long totalBytes() {
+            return pages.stream().mapToLong(PageStat::bytes).sum();
+        }
+
+        long totalNodes() {
+            return pages.stream().mapToLong(PageStat::nodes).sum();
+        }
+    }
+
+    static Report inspect(Path file, Settings settings, CancelToken cancel) throws IOException {
+        long start = System.nanoTime();
+        byte[] source = Files.readAllBytes(file);
+        String raw = BookStore.decodeUtf8(source);
+        long read = System.nanoTime();
+
+        List<Object> inputs = new ArrayList<>();
+        List<String> breaks = new ArrayList<>();
+        Function<Object, Component> renderer;
+        if (settings.isModern()) {
+            // modern 模式只在 \Line-break\ 处翻页
+            TextUtils.scanModernPages(TextUtils.normalizeModern(raw, settings), page -> {
+                cancel.check(inputs.size());
+                inputs.add(page);
+                breaks.add(Paginator.Break.MARKER.name());
+            });
+            if (!breaks.isEmpty()) breaks.set(breaks.size() - 1, Paginator.Break.END.name());
+            renderer = input -> TextUtils.renderModernPage((String) input);
+        } else {
+            ClassicText text = ClassicText.parse(raw);
+            Paginator[] paginator = new Paginator[1];
+            paginator[0] = TextUtils.newClassicPaginator(settings.classic(), (chars, from, to) -> {
+                inputs.add(text.page(from, to, paginator[0].lineBreaks()));
+                breaks.add(paginator[0].lastBreak().name());
+                return true;
+            });
+            paginator[0].cancel(cancel).bold(text.bold()).paginate(text.text());
+            renderer = input -> ((ClassicText.Page) input).render();
+        }
+        long paginated = System.nanoTime();
+
+        boolean compact = settings.network().compactComponents();
+        List<Component> rendered = new ArrayList<>(inputs.size());
+        for (Object input : inputs) {
+            cancel.check(-1);
+            Component page = renderer.apply(input);
+            rendered.add(compact ? ComponentCompactor.compact(page) : page);
+        }
+        long done = System.nanoTime();
+
+        List<PageStat> pages = new ArrayList<>(rendered.size());
+        for (int i = 0; i < rendered.size(); i++) {
+            Component page = rendered.get(i);
+            int[] counts = new int[2];
+            count(page, counts);
+            pages.add(new PageStat(i + 1, counts[0], breaks.get(i).toLowerCase(Locale.ROOT), counts[1],
+                    ComponentCompactor.jsonLength(page), ComponentCompactor.estimateBytes(List.of(page), Long.MAX_VALUE)));
+        }
+        return new Report(settings.mode(), source.length, pages, read - start, paginated - read, done - paginated);
+    }
+
+    // counts[0]: 可见码点数; counts[1]: 节点数
+    private static void count(Component node, int[] counts) {
+        counts[1]++;
+        if (node instanceof TextComponent text) {
+            String content = text.content();
+            counts[0] += content.codePointCount(0, content.length());
+        }
+        for (Component child : node.children()) count(child, counts);
+    }
+
+    static void writeCsv(Report report, Path csv) throws IOException {
+        Files.createDirectories(csv.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            out.println("page,code_points,break,nodes,json_chars,bytes,oversized");
+            for (PageStat p : report.pages()) {
+                out.printf(Locale.ROOT, "%d,%d,%s,%d,%d,%d,%b%n", p.page(), p.codePoints(), p.breakRule(),
+                        p.nodes(), p.jsonChars(), p.bytes(), p.jsonChars() > ComponentCompactor.MAX_PAGE_JSON);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// 书页渲染阶段: 分页后各页互不依赖, 页数达到阈值时在独立的 ForkJoinPool 中并行构建组件,
+// 结果保持原有顺序; 使用独立线程池, 不占用服务器的异步调度线程
+public final class PageRenderer implements AutoCloseable {
+
+    static final PageRenderer SEQUENTIAL = new PageRenderer(1, Integer.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int threshold;
+
+    public PageRenderer(int parallelism, int threshold) {
+        this.parallelism = Math.max(1, parallelism);
+        this.threshold = Math.max(1, threshold);
+        this.pool = this.parallelism > 1
+                ? new ForkJoinPool(this.parallelism, new WorkerFactory(), null, false)
+                : null;
+    }
+
+    public <T> List<Component> render(List<T> inputs, Function<? super T, Component> pageRenderer) {
+        return render(inputs, pageRenderer, CancelToken.NONE);
+    }
+
+    // 渲染线程逐页调用 cancel, 任一页抛出的异常由 render 重新抛出
+    <T> List<Component> render(List<T> inputs, Function<? super T, Component> pageRenderer, CancelToken cancel) {
+        Function<? super T, Component> renderer = (cancel == CancelToken.NONE) ? pageRenderer : input -> {
+            cancel.check(-1);
+            return pageRenderer.apply(input);
+        };
+        int n = inputs.size();
+        if (pool == null || n < threshold) {
+            return renderSequential(inputs, renderer);
+        }
+
+        Component[] out = new Component[n];
+        int grain = Math.max(1, n / (parallelism * 4));
+        try {
+            pool.invoke(new RenderTask<>(inputs, renderer, out, 0, n, grain));
+        } catch (RejectedExecutionException e) {
+            // 重载配置时旧线程池已关闭, 退回单线程
+            return renderSequential(inputs, renderer);
+        }
+        return Arrays.asList(out);
+    }
+
+    private static <T> List<Component> renderSequential(List<T> inputs, Function<? super T, Component> renderer) {
+        List<Component> pages = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            pages.add(renderer.apply(input));
+        }
+        return pages;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    private static final class RenderTask<T> extends RecursiveAction {
+        private final List<T> inputs;
+        private final Function<? super T, Component> renderer;
+        private final Component[] out;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RenderTask(List<T> inputs, Function<? super T, Component> renderer, Component[] out, int from, int to, int grain) {
+            this.inputs = inputs;
+            this.renderer = renderer;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    out[i] = renderer.apply(inputs.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RenderTask<>(inputs, renderer, out, from, mid, grain),
+                    new RenderTask<>(inputs, renderer, out, mid, to, grain));
+        }
+    }
+
+    private static final class WorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("BookPrinter-Render-" + counter.incrementAndGet());
+            return thread;
+        }
+    }
+}
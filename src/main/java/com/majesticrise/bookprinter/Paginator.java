@@ -0,0 +1,606 @@
+package com.majesticrise.bookprinter;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+// 线性分页引擎: 以码点游标单次遍历文本, 页边界以源文本偏移量的形式交给 PageSink,
+// smart / lines / hard / marker 四种策略的分页结果与原 splitToPagesSafe 完全一致;
+// width 策略按字符像素宽度模拟成书界面的自动换行, 每页写满 maxLines 行.
+// 既可一次性处理整段文本 (paginate), 也可分块喂入 (feed / finish), 已分完页的前缀会被丢弃
+final class Paginator {
+
+    interface PageSink {
+        // 返回 false 表示不再需要后续页面
+        boolean accept(CharSequence source, int start, int end);
+    }
+
+    interface CheckpointSink {
+        // 分页状态在 offset 处回到初始状态: 此前已交付 pages 页, 且这些页只依赖 horizon 之前的文本
+        void accept(int offset, int pages, int horizon);
+    }
+
+    // 每页的断页原因: 单元 (全文 / lines 块 / marker 段) 结束, smart 回看到的换行或空格, 找不到断点时的强制切断
+    enum Break { END, LINES, MARKER, NEWLINE, SPACE, HARD }
+
+    private static final int NEED_MORE = 0;
+    private static final int PROGRESS = 1;
+    private static final int DONE = 2;
+    private static final int COMPACT_THRESHOLD = 8192;
+    private static final int[] NO_BREAKS = new int[0];
+
+    private final int maxChars;
+    private final int thresholdCp;
+    private final int maxLines;
+    private final String strategy;
+    private final String pageMarker;
+    private final boolean preserveNewlines;
+    private final boolean trimTrailingEmptyPages;
+    private final PageSink sink;
+    private CheckpointSink checkpoints;
+    private CancelToken cancel = CancelToken.NONE;
+    // width: 给定位置的字符是否为粗体, 为 null 时均按常规字重计算
+    private IntPredicate bold;
+
+    private CharSequence text = "";
+    private StringBuilder buffer;
+    private int base;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private boolean stopped;
+
+    // lines: 当前块; marker: 当前段
+    private int unitStart;
+    private int unitEnd = -1;
+    private boolean lastUnit;
+    private int scanPos;
+    private int lineCount;
+
+    // 当前单元内的 smart 游标
+    private boolean segmentActive;
+    private int cursor;
+
+    // 末尾空页裁剪: 空页先挂起, 遇到非空页再补发
+    private boolean innerTrim;
+    private int innerPending;
+    private boolean innerHasPage;
+    private int outerPending;
+    private int delivered;
+    private Break lastBreak = Break.END;
+    private int layoutHorizon;
+    // width: 当前页内为避头尾提前换行的位置, 渲染时在这些位置前插入换行符
+    private int[] wraps = new int[4];
+    private int wrapCount;
+    private int[] lineBreaks = NO_BREAKS;
+
+    Paginator(int maxChars, String strategy, String pageMarker, int maxLines,
+              boolean preserveNewlines, boolean trimTrailingEmptyPages, PageSink sink) {
+        this.maxChars = Math.max(1, maxChars);
+        this.thresholdCp = Math.max(3, this.maxChars / 8);
+        this.maxLines = Math.max(1, maxLines);
+        this.pageMarker = pageMarker;
+        this.preserveNewlines = preserveNewlines;
+        this.trimTrailingEmptyPages = trimTrailingEmptyPages;
+        this.sink = sink;
+
+        String used = (strategy == null) ? "smart" : strategy;
+        if ("marker".equals(used) && (pageMarker == null || pageMarker.isEmpty())) used = "smart";
+        this.strategy = switch (used) {
+            case "lines", "hard", "marker", "width" -> used;
+            default -> "smart";
+        };
+    }
+
+    Paginator checkpoints(CheckpointSink checkpoints) {
+        this.checkpoints = checkpoints;
+        return this;
+    }
+
+    // 每交付一页前调用, 生成任务被取消或超时时由 cancel 抛出异常中止分页
+    Paginator cancel(CancelToken cancel) {
+        this.cancel = cancel;
+        return this;
+    }
+
+    Paginator bold(IntPredicate bold) {
+        this.bold = bold;
+        return this;
+    }
+
+    // 从 CheckpointSink 报告过的位置继续分页, 之前的 pages 页视为已交付
+    Paginator resumeAt(int offset, int pages) {
+        this.unitStart = offset;
+        this.scanPos = offset;
+        this.cursor = offset;
+        this.delivered = pages;
+        return this;
+    }
+
+    // 最近交付的一页的断页原因, 在 PageSink.accept 中读取
+    Break lastBreak() {
+        return lastBreak;
+    }
+
+    // 最近交付的一页内需要插入换行符的位置 (升序, 与 PageSink 收到的下标同一坐标), 在 PageSink.accept 中读取
+    int[] lineBreaks() {
+        return lineBreaks;
+    }
+
+    // 取 [start, end) 的文本, 并在 breaks 中的每个位置前插入换行符; source 中下标 i 对应位置 base + i
+    static String withLineBreaks(CharSequence source, int base, int start, int end, int[] breaks) {
+        StringBuilder out = null;
+        int pos = start;
+        for (int b : breaks) {
+            if (b <= start || b >= end) continue;
+            if (out == null) out = new StringBuilder(end - start + breaks.length);
+            out.append(source, pos - base, b - base).append('\n');
+            pos = b;
+        }
+        if (out == null) return source.subSequence(start - base, end - base).toString();
+        return out.append(source, pos - base, end - base).toString();
+    }
+
+    // 分块输入时已丢弃的前缀长度: PageSink 收到的下标加上它即为在全部输入中的位置
+    int base() {
+        return base;
+    }
+
+    void paginate(CharSequence source) {
+        this.text = source;
+        this.limit = source.length();
+        this.eof = true;
+        run();
+    }
+
+    // 追加一段文本并尽可能继续分页, 返回 false 表示 PageSink 已要求停止
+    boolean feed(CharSequence chunk) {
+        if (buffer == null) {
+            buffer = new StringBuilder(Math.max(16, chunk.length()));
+            text = buffer;
+        }
+        compact();
+        buffer.append(chunk);
+        limit += chunk.length();
+        run();
+        return !stopped;
+    }
+
+    void finish() {
+        eof = true;
+        run();
+    }
+
+    private void compact() {
+        int keep = (segmentActive || !"lines".equals(strategy) && !"marker".equals(strategy)) ? cursor : unitStart;
+        int drop = keep - base;
+        if (drop >= COMPACT_THRESHOLD && drop >= buffer.length() / 2) {
+            buffer.delete(0, drop);
+            base = keep;
+        }
+    }
+
+    private void run() {
+        while (!finished && !stopped) {
+            boolean progressed = switch (strategy) {
+                case "lines" -> stepLines();
+                case "marker" -> stepMarker();
+                case "hard" -> stepWhole(true);
+                case "width" -> stepWidth();
+                default -> stepWhole(false);
+            };
+            if (!progressed) break;
+        }
+        if (finished && !stopped && trimTrailingEmptyPages) {
+            outerPending = 0;
+            if (delivered == 0) {
+                lastBreak = Break.END;
+                deliver(limit, limit);
+            }
+        }
+    }
+
+    private boolean stepWhole(boolean hard) {
+        if (!hard && eof && limit == 0) {
+            lastBreak = Break.END;
+            emit(0, 0);
+            finished = true;
+            return false;
+        }
+        int r = smartStep(limit, eof, hard);
+        if (r == DONE) finished = true;
+        return r == PROGRESS;
+    }
+
+    private boolean stepWidth() {
+        if (eof && limit == 0) {
+            lastBreak = Break.END;
+            emit(0, 0);
+            finished = true;
+            return false;
+        }
+        int cut = layoutPage(cursor, limit);
+        if (cut < 0) {
+            if (!eof) return false;
+            lastBreak = Break.END;
+            if (cursor < limit) emitPage(cursor, limit);
+            cursor = limit;
+            finished = true;
+            return false;
+        }
+        emitPage(cursor, cut);
+        cursor = cut;
+        checkpoint(cursor, layoutHorizon);
+        return true;
+    }
+
+    // 从 from 起逐行排版: 行宽超出时在最后一个空格处换行, 没有空格时在当前字符前换行 (与客户端一致),
+    // 此时按避头尾规则把换行点前移并记录下来, 由渲染插入换行符;
+    // 第 maxLines + 1 行或第 maxChars + 1 个码点的起点即为页尾. 文本不足一页时返回 -1
+    private int layoutPage(int from, int to) {
+        wrapCount = 0;
+        int lines = 1;
+        int chars = 0;
+        int lineBegin = from;
+        int lineWidth = 0;
+        int afterSpace = 0;
+        int space = -1;
+        boolean visible = false;
+        int i = from;
+        while (i < to) {
+            char c = charAt(i);
+            int len = 1;
+            int cp = c;
+            if (Character.isHighSurrogate(c)) {
+                if (i + 1 >= to && !eof) return -1;
+                if (i + 1 < to && Character.isLowSurrogate(charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, charAt(i + 1));
+                    len = 2;
+                }
+            }
+            layoutHorizon = i + len;
+            if (chars == maxChars) {
+                lastBreak = Break.HARD;
+                return kinsoku(from, i);
+            }
+
+            int lineStart = -1;
+            Break rule = Break.HARD;
+            if (cp == '\n') {
+                lineStart = i + 1;
+                rule = Break.NEWLINE;
+                lineWidth = 0;
+            } else {
+                int advance = GlyphWidths.advance(cp, bold != null && bold.test(i));
+                if (cp == ' ') {
+                    space = i;
+                    afterSpace = 0;
+                } else {
+                    afterSpace += advance;
+                }
+                lineWidth += advance;
+                if (visible && lineWidth > GlyphWidths.BOOK_WIDTH) {
+                    if (space >= 0) {
+                        // 空格留在上一行末尾, 空格之后的字符移到新行
+                        lineStart = space + 1;
+                        rule = Break.SPACE;
+                        lineWidth = (space == i) ? 0 : afterSpace;
+                    } else {
+                        lineStart = kinsoku(lineBegin, i);
+                        lineWidth = width(lineStart, i + len);
+                    }
+                }
+                visible |= advance > 0;
+            }
+
+            if (lineStart >= 0) {
+                if (++lines > maxLines) {
+                    lastBreak = rule;
+                    return lineStart;
+                }
+                if (rule == Break.HARD && lineStart < i) addWrap(lineStart);
+                lineBegin = lineStart;
+                space = -1;
+                afterSpace = 0;
+                visible = lineWidth > 0;
+            }
+            chars++;
+            i += len;
+        }
+        return -1;
+    }
+
+    // 在 end 处断开会让行首出现避头标点或行尾出现避尾标点时前移断点, 最多回退 3 个码点且不越过 floor
+    private int kinsoku(int floor, int end) {
+        int cut = end;
+        for (int n = 0; n < 3 && cut - floor > 1; n++) {
+            int before = Character.codePointBefore(text, cut - base);
+            boolean blocked = (cut < limit && GlyphWidths.noBreakBefore(Character.codePointAt(text, cut - base)))
+                    || GlyphWidths.noBreakAfter(before);
+            if (!blocked) break;
+            cut -= Character.charCount(before);
+        }
+        return (cut > floor) ? cut : end;
+    }
+
+    private int width(int from, int to) {
+        int width = 0;
+        for (int i = from; i < to; ) {
+            int cp = Character.codePointAt(text, i - base);
+            width += GlyphWidths.advance(cp, bold != null && bold.test(i));
+            i += Character.charCount(cp);
+        }
+        return width;
+    }
+
+    private void addWrap(int position) {
+        if (wrapCount == wraps.length) wraps = Arrays.copyOf(wraps, wrapCount * 2);
+        wraps[wrapCount++] = position;
+    }
+
+    private boolean stepLines() {
+        while (unitEnd < 0) {
+            int nl = indexOf('\n', scanPos, limit);
+            if (nl < 0) {
+                scanPos = limit;
+                if (eof) {
+                    unitEnd = limit;
+                    lastUnit = true;
+                }
+                break;
+            }
+            scanPos = nl + 1;
+            if (++lineCount >= maxLines) unitEnd = nl;
+        }
+
+        boolean closed = unitEnd >= 0;
+        int bound = closed ? unitEnd : limit;
+
+        if (!segmentActive) {
+            // 块首的空行不参与拼接
+            int s = unitStart;
+            while (s < bound && charAt(s) == '\n') s++;
+
+            if (codePointsWithin(s, bound, maxChars)) {
+                if (!closed) return false;
+                lastBreak = unitBreak();
+                emitPage(s, bound);
+                nextUnit();
+                return true;
+            }
+            beginSegment(s);
+        }
+
+        int r = smartStep(bound, closed, false);
+        if (r == DONE) {
+            endSegment();
+            nextUnit();
+        }
+        return r != NEED_MORE;
+    }
+
+    private boolean stepMarker() {
+        int safeLimit = Math.max(unitStart, limit - pageMarker.length() + 1);
+        if (unitEnd < 0) {
+            int m = indexOf(pageMarker, scanPos, limit);
+            if (m >= 0) {
+                unitEnd = m;
+            } else if (eof) {
+                unitEnd = limit;
+                lastUnit = true;
+            } else {
+                scanPos = safeLimit;
+            }
+        }
+
+        boolean closed = unitEnd >= 0;
+        int bound = closed ? unitEnd : safeLimit;
+
+        if (!segmentActive) {
+            if (bound == unitStart) {
+                if (!closed) return false;
+                lastBreak = unitBreak();
+                emit(unitStart, unitStart);
+                nextUnit();
+                return true;
+            }
+            beginSegment(unitStart);
+        }
+
+        int r = smartStep(bound, closed, false);
+        if (r == DONE) {
+            endSegment();
+            nextUnit();
+        }
+        return r != NEED_MORE;
+    }
+
+    private void nextUnit() {
+        if (lastUnit) {
+            finished = true;
+            return;
+        }
+        unitStart = "marker".equals(strategy) ? unitEnd + pageMarker.length() : unitEnd + 1;
+        scanPos = unitStart;
+        unitEnd = -1;
+        lineCount = 0;
+        checkpoint(unitStart, unitStart);
+    }
+
+    private void checkpoint(int offset, int horizon) {
+        // 挂起的空页尚未交付时状态不完整
+        if (checkpoints != null && outerPending == 0 && innerPending == 0 && !stopped) {
+            checkpoints.accept(offset, delivered, horizon);
+        }
+    }
+
+    // smart 或 hard 的一步: 从 cursor 起取最多 maxChars 个码点, 段内未取完时回看断点
+    private int smartStep(int segLimit, boolean closed, boolean hard) {
+        int end = advance(cursor, segLimit);
+        if (end >= segLimit) {
+            if (!closed) return NEED_MORE;
+            lastBreak = unitBreak();
+            if (cursor < segLimit) emitPage(cursor, segLimit);
+            cursor = segLimit;
+            return DONE;
+        }
+
+        int cut = end;
+        lastBreak = Break.HARD;
+        if (!hard) {
+            int nl = lookBack('\n', cursor, end);
+            if (nl >= 0) {
+                cut = nl + 1;
+                lastBreak = Break.NEWLINE;
+            } else {
+                int sp = lookBack(' ', cursor, end);
+                if (sp >= 0) {
+                    cut = sp + 1;
+                    lastBreak = Break.SPACE;
+                }
+            }
+        }
+        emitPage(cursor, cut);
+        cursor = cut;
+        // lines / marker 的块内状态不便恢复, 只在块边界记录
+        if (!segmentActive) checkpoint(cursor, end + 1);
+        return PROGRESS;
+    }
+
+    private int advance(int from, int segLimit) {
+        int i = from;
+        for (int n = 0; n < maxChars && i < segLimit; n++) {
+            char c = charAt(i++);
+            if (Character.isHighSurrogate(c) && i < segLimit && Character.isLowSurrogate(charAt(i))) i++;
+        }
+        return i;
+    }
+
+    // 在 end 之前最多回看 thresholdCp 个码点寻找断点字符
+    private int lookBack(char target, int from, int end) {
+        int count = 0;
+        int i = end - 1;
+        while (i >= from) {
+            char c = charAt(i);
+            if (c == target) return i;
+            if (++count > thresholdCp) return -1;
+            if (Character.isLowSurrogate(c) && i - 1 >= from && Character.isHighSurrogate(charAt(i - 1))) {
+                i -= 2;
+            } else {
+                i--;
+            }
+        }
+        return -1;
+    }
+
+    private boolean codePointsWithin(int from, int to, int max) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char c = charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(charAt(i + 1))) i++;
+            if (++n > max) return false;
+        }
+        return true;
+    }
+
+    private void beginSegment(int start) {
+        segmentActive = true;
+        cursor = start;
+        innerTrim = trimTrailingEmptyPages;
+        innerPending = 0;
+        innerHasPage = false;
+    }
+
+    private void endSegment() {
+        segmentActive = false;
+        if (innerTrim) {
+            innerTrim = false;
+            innerPending = 0;
+            if (!innerHasPage) {
+                lastBreak = unitBreak();
+                emit(cursor, cursor);
+            }
+        }
+    }
+
+    private Break unitBreak() {
+        if (lastUnit) return Break.END;
+        return switch (strategy) {
+            case "lines" -> Break.LINES;
+            case "marker" -> Break.MARKER;
+            default -> Break.END;
+        };
+    }
+
+    private void emitPage(int start, int cut) {
+        int end = cut;
+        if (!preserveNewlines) {
+            while (end > start) {
+                char ch = charAt(end - 1);
+                if (ch == '\n' || ch == '\r') end--;
+                else break;
+            }
+        }
+
+        if (innerTrim) {
+            if (start == end) {
+                innerPending++;
+                return;
+            }
+            for (; innerPending > 0; innerPending--) emit(start, start);
+            innerHasPage = true;
+        }
+        emit(start, end);
+    }
+
+    private void emit(int start, int end) {
+        if (!trimTrailingEmptyPages) {
+            deliver(start, end);
+            return;
+        }
+        if (start == end) {
+            outerPending++;
+            return;
+        }
+        for (; outerPending > 0 && !stopped; outerPending--) deliver(start, start);
+        deliver(start, end);
+    }
+
+    private void deliver(int start, int end) {
+        if (stopped) return;
+        cancel.check(delivered);
+        delivered++;
+        lineBreaks = NO_BREAKS;
+        if (wrapCount > 0 && start < end) {
+            int n = 0;
+            int[] within = new int[wrapCount];
+            for (int k = 0; k < wrapCount; k++) {
+                if (wraps[k] > start && wraps[k] < end) within[n++] = wraps[k] - base;
+            }
+            if (n > 0) lineBreaks = Arrays.copyOf(within, n);
+        }
+        if (!sink.accept(text, start - base, end - base)) stopped = true;
+    }
+
+    private char charAt(int index) {
+        return text.charAt(index - base);
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(String needle, int from, int to) {
+        int last = to - needle.length();
+        char first = needle.charAt(0);
+        for (int i = from; i <= last; i++) {
+            if (charAt(i) != first) continue;
+            int k = 1;
+            while (k < needle.length() && charAt(i + k) == needle.charAt(k)) k++;
+            if (k == needle.length()) return i;
+        }
+        return -1;
+    }
+}
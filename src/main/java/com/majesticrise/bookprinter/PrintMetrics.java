@@ -0,0 +1,204 @@
+package com.majesticrise.bookprinter;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// 生成流程各阶段的耗时直方图与计数器, 通过 /bookprinter stats 和 JMX 查看
+public final class PrintMetrics implements PrintMetricsMXBean {
+
+    public enum Stage {
+        QUEUE_WAIT, RESOLVE, READ, PAGINATE, RENDER, BUILD_ITEM, DELIVER
+    }
+
+    private static final String OBJECT_NAME = "com.majesticrise.bookprinter:type=PrintMetrics";
+
+    private final Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder failedJobs = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder pagesProduced = new LongAdder();
+    // 其他组件的计数 (缓存、队列等), 读取时取值
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public PrintMetrics() {
+        for (Stage stage : Stage.values()) stages.put(stage, new Histogram());
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public void jobCompleted(long bytes, int pages) {
+        jobs.increment();
+        bytesRead.add(bytes);
+        pagesProduced.add(pages);
+    }
+
+    public void jobFailed() {
+        failedJobs.increment();
+    }
+
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public Histogram histogram(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public void register(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            // 热重载插件时旧实例可能仍在注册表中
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Failed to register JMX metrics", e);
+        }
+    }
+
+    public void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException ignored) {
+        }
+    }
+
+    @Override
+    public long getJobs() {
+        return jobs.sum();
+    }
+
+    @Override
+    public long getFailedJobs() {
+        return failedJobs.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getPagesProduced() {
+        return pagesProduced.sum();
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        stages.forEach((stage, h) -> result.put(stage.name(), h.count()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getP50Micros() {
+        return percentiles(0.50);
+    }
+
+    @Override
+    public Map<String, Long> getP95Micros() {
+        return percentiles(0.95);
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getMaxMicros() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        stages.forEach((stage, h) -> result.put(stage.name(), h.maxMicros()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        gauges.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> result.put(e.getKey(), e.getValue().getAsLong()));
+        return result;
+    }
+
+    private Map<String, Long> percentiles(double p) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        stages.forEach((stage, h) -> result.put(stage.name(), h.percentileMicros(p)));
+        return result;
+    }
+
+    // 对数分桶直方图 (微秒): 每个 2 的幂区间再细分 4 个桶, 相对误差不超过 25%, 写入无锁
+    public static final class Histogram {
+        private static final int SUB_BITS = 2;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 << SUB_BITS);
+        private final LongAdder count = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+        void record(long nanos) {
+            long micros = Math.max(0L, nanos / 1000L);
+            buckets.incrementAndGet(index(micros));
+            count.increment();
+            max.accumulate(micros);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long maxMicros() {
+            return max.get();
+        }
+
+        // 返回所在桶的上界, 并以实际最大值封顶
+        public long percentileMicros(double p) {
+            long total = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0;
+
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        static int index(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) ((value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+            return ((exp - SUB_BITS + 1) << SUB_BITS) + sub;
+        }
+
+        static long upperBound(int index) {
+            if (index < SUB_COUNT) return index;
+            int exp = (index >> SUB_BITS) + SUB_BITS - 1;
+            long width = 1L << (exp - SUB_BITS);
+            long lower = (1L << exp) + (index & (SUB_COUNT - 1)) * width;
+            return lower + width - 1;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.majesticrise.bookprinter;
+
+import java.util.Map;
+
+// JMX 视图: com.majesticrise.bookprinter:type=PrintMetrics, 耗时单位为微秒
+public interface PrintMetricsMXBean {
+    long getJobs();
+
+    long getFailedJobs();
+
+    long getBytesRead();
+
+    long getPagesProduced();
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Long> getP50Micros();
+
+    Map<String, Long> getP95Micros();
+
+    Map<String, Long> getP99Micros();
+
+    Map<String, Long> getMaxMicros();
+
+    Map<String, Long> getCounters();
+}
@@ -0,0 +1,91 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+// BookPrinterService 的实现, 所有任务都经过插件自己的任务队列、内存缓存与请求合并
+final class PrinterService implements BookPrinterService {
+
+    private final BookPrinter plugin;
+
+    PrinterService(BookPrinter plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public CompletableFuture<List<Component>> compileAsync(String text, Options options) {
+        Objects.requireNonNull(text, "text");
+        Settings current = plugin.settingsFor(mode(options));
+        return plugin.submitJob("text", job -> plugin.compileText(text, current, job));
+    }
+
+    @Override
+    public CompletableFuture<List<Component>> compileAsync(Path file, Options options) {
+        Objects.requireNonNull(file, "file");
+        Settings current = plugin.settingsFor(mode(options));
+        return plugin.submitJob(file.toString(), job -> plugin.compilePath(file, current, job));
+    }
+
+    @Override
+    public CompletableFuture<List<List<Component>>> compileAllAsync(List<String> texts, Options options) {
+        List<String> inputs = List.copyOf(texts);
+        if (inputs.isEmpty()) return CompletableFuture.completedFuture(List.of());
+        Settings current = plugin.settingsFor(mode(options));
+
+        // 每个任务处理间隔为 chunks 的一组文本, 长短文本均匀分布, 也不会一次占满等待队列
+        int chunks = Math.min(inputs.size(), Math.max(1, current.jobs().maxConcurrent()));
+        @SuppressWarnings("unchecked")
+        List<Component>[] results = new List[inputs.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks];
+        for (int c = 0; c < chunks; c++) {
+            final int first = c;
+            futures[c] = plugin.submitJob("text batch " + (c + 1) + "/" + chunks, job -> {
+                for (int i = first; i < inputs.size(); i += chunks) {
+                    results[i] = plugin.compileText(inputs.get(i), current, job);
+                }
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignored -> new ArrayList<>(Arrays.asList(results)));
+    }
+
+    @Override
+    public CompletableFuture<List<ItemStack>> createBookAsync(String text, String title, String author, Options options) {
+        Objects.requireNonNull(text, "text");
+        Objects.requireNonNull(title, "title");
+        String finalAuthor = BookPrinter.sanitizeAuthor(Objects.requireNonNull(author, "author"));
+        Settings current = plugin.settingsFor(mode(options));
+        CompletableFuture<List<Component>> compiled = plugin.submitJob(title, job -> {
+            List<Component> pages = plugin.compileText(text, current, job);
+            long size = plugin.oversizedBookBytes(pages, current);
+            if (size >= 0) {
+                throw new IllegalStateException("Book exceeds network.max_book_bytes: " + size + " > "
+                        + current.network().maxBookBytes());
+            }
+            return pages;
+        });
+        // 与指令一致, 物品在全局区域线程上创建
+        return compiled.thenCompose(pages -> {
+            CompletableFuture<List<ItemStack>> items = new CompletableFuture<>();
+            plugin.scheduleGlobal(() -> {
+                try {
+                    items.complete(plugin.createBookItems(title, finalAuthor, pages, current.volumes()));
+                } catch (RuntimeException e) {
+                    items.completeExceptionally(e);
+                }
+            });
+            return items;
+        });
+    }
+
+    private static String mode(Options options) {
+        return (options != null) ? options.mode() : null;
+    }
+}
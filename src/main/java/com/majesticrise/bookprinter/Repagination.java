@@ -0,0 +1,197 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// 增量分页: 编译结果附带分页检查点 (分页坐标中的恢复位置、此前的页数、这些页读到的位置及其前缀哈希).
+// 文件被追加或局部修改后, 从前缀哈希仍然一致的最后一个检查点继续分页, 之前的页直接复用
+final class Repagination {
+
+    // 相邻检查点之间至少间隔的页数, 限制检查点占用的空间
+    static final int INTERVAL = 16;
+
+    // 书页体积超限时缩小分页的最多次数
+    private static final int MAX_REFLOW_RETRIES = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Repagination() {}
+
+    record Checkpoint(int offset, int page, int horizon, long prefixHash) {}
+
+    record Compiled(List<Component> pages, List<Checkpoint> checkpoints) {}
+
+    // 可复用的部分: 仍然有效的最后一个检查点, 以及它之前的检查点和页
+    record Resume(Checkpoint at, List<Checkpoint> checkpoints, List<Component> pages) {}
+
+    // 分页坐标中的文本: modern 为预处理后的文本, classic 为去除颜色代码后的可见文本及其样式
+    record Source(String text, ClassicText classic) {
+
+        long hash(long hash, int from, int to) {
+            return classic != null ? classic.hash(hash, from, to, FNV_PRIME) : Repagination.hash(hash, text, from, to);
+        }
+    }
+
+    // 待渲染的新页; 最终结果为复用的页加上渲染后的 inputs
+    record Plan<T>(List<T> inputs, Function<T, Component> renderer, Resume resume, List<Checkpoint> checkpoints) {
+
+        Compiled render(PageRenderer pageRenderer) {
+            return render(pageRenderer, UnaryOperator.identity());
+        }
+
+        // finish 为渲染后的逐页后处理 (如组件压缩), 与渲染一起并行执行; 复用的页已处理过
+        Compiled render(PageRenderer pageRenderer, UnaryOperator<Component> finish) {
+            return render(pageRenderer, finish, CancelToken.NONE);
+        }
+
+        Compiled render(PageRenderer pageRenderer, UnaryOperator<Component> finish, CancelToken cancel) {
+            List<Component> rendered = pageRenderer.render(inputs, renderer.andThen(finish), cancel);
+            if (resume == null) return new Compiled(rendered, checkpoints);
+            List<Component> pages = new ArrayList<>(resume.pages().size() + rendered.size());
+            pages.addAll(resume.pages());
+            pages.addAll(rendered);
+            return new Compiled(pages, checkpoints);
+        }
+    }
+
+    static Source prepare(String rawText, Settings settings) {
+        if (settings.isModern()) return new Source(TextUtils.normalizeModern(rawText, settings), null);
+        ClassicText classic = ClassicText.parse(rawText);
+        return new Source(classic.text(), classic);
+    }
+
+    // 在新文本上逐个校验检查点的前缀哈希, 返回最后一个有效的检查点; 前缀哈希是链式的, 遇到第一个不一致即可停止
+    static Checkpoint lastValid(Source source, List<Checkpoint> checkpoints) {
+        if (checkpoints == null) return null;
+        Checkpoint valid = null;
+        long hash = FNV_OFFSET;
+        int pos = 0;
+        for (Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.horizon() > source.text().length() || checkpoint.horizon() < pos) break;
+            hash = source.hash(hash, pos, checkpoint.horizon());
+            pos = checkpoint.horizon();
+            if (hash != checkpoint.prefixHash()) break;
+            valid = checkpoint;
+        }
+        return valid;
+    }
+
+    static Resume resume(Source source, Compiled previous) {
+        Checkpoint at = lastValid(source, previous.checkpoints());
+        if (at == null || at.page() > previous.pages().size()) return null;
+        return resume(at, previous.checkpoints(), previous.pages().subList(0, at.page()));
+    }
+
+    static Resume resume(Checkpoint at, List<Checkpoint> checkpoints, List<Component> pages) {
+        List<Checkpoint> kept = new ArrayList<>();
+        for (Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.page() > at.page()) break;
+            kept.add(checkpoint);
+        }
+        return new Resume(at, kept, pages);
+    }
+
+    // resume 为 null 时从头分页
+    static Plan<?> paginate(Source source, Settings settings, Resume resume) {
+        return paginate(source, settings, resume, CancelToken.NONE);
+    }
+
+    // 每交付一页调用 cancel, 同时报告已分页数
+    static Plan<?> paginate(Source source, Settings settings, Resume resume, CancelToken cancel) {
+        Collector collector = new Collector(source, resume);
+        int reused = (resume != null) ? resume.at().page() : 0;
+
+        if (source.classic() == null) {
+            List<String> inputs = new ArrayList<>();
+            int from = (resume != null) ? resume.at().offset() : 0;
+            TextUtils.scanModernPages(source.text(), from, inputs::add,
+                    offset -> {
+                        collector.accept(offset, reused + inputs.size(), offset);
+                        cancel.check(reused + inputs.size());
+                    });
+            return new Plan<>(inputs, TextUtils::renderModernPage, resume, collector.checkpoints);
+        }
+
+        List<ClassicText.Page> inputs = new ArrayList<>();
+        Paginator[] paginator = new Paginator[1];
+        paginator[0] = TextUtils.newClassicPaginator(settings.classic(),
+                (text, start, end) -> inputs.add(source.classic().page(start, end, paginator[0].lineBreaks())))
+                .checkpoints(collector).cancel(cancel).bold(source.classic().bold());
+        if (resume != null) paginator[0].resumeAt(resume.at().offset(), reused);
+        paginator[0].paginate(source.text());
+        return new Plan<>(inputs, ClassicText.Page::render, resume, collector.checkpoints);
+    }
+
+    // 单页序列化后超出原版上限时, classic 模式按超出比例缩小每页字符数重新分页, 返回新的结果;
+    // modern 模式的页由作者划分, 无法调整时抛出 PageTooLargeException. 没有超限的页时原样返回 compiled
+    static Compiled fit(Source source, Settings settings, Compiled compiled,
+                        PageRenderer pageRenderer, UnaryOperator<Component> finish) {
+        return fit(source, settings, compiled, pageRenderer, finish, CancelToken.NONE);
+    }
+
+    static Compiled fit(Source source, Settings settings, Compiled compiled,
+                        PageRenderer pageRenderer, UnaryOperator<Component> finish, CancelToken cancel) {
+        Settings attempt = settings;
+        for (int retry = 0; ; retry++) {
+            ComponentCompactor.Oversized oversized = ComponentCompactor.findOversized(compiled.pages());
+            if (oversized == null) return compiled;
+            // width 策略的页通常远小于字符上限, 按超限页的实际字符数缩小
+            int chars = Math.min(attempt.classic().maxChars(), codePoints(compiled.pages().get(oversized.page() - 1)));
+            int maxChars = (int) ((long) chars * ComponentCompactor.MAX_PAGE_JSON * 9 / 10 / oversized.length());
+            if (source.classic() == null || retry >= MAX_REFLOW_RETRIES || maxChars < 1) {
+                throw new ComponentCompactor.PageTooLargeException(oversized.page(), oversized.length());
+            }
+            attempt = attempt.withClassicMaxChars(Math.min(maxChars, chars - 1));
+            // 缩小后的分页与配置不一致, 不保留检查点, 之后不会从这里增量分页
+            List<Component> pages = paginate(source, attempt, null, cancel).render(pageRenderer, finish, cancel).pages();
+            compiled = new Compiled(pages, List.of());
+        }
+    }
+
+    private static int codePoints(Component component) {
+        int n = (component instanceof TextComponent text) ? text.content().codePointCount(0, text.content().length()) : 0;
+        for (Component child : component.children()) n += codePoints(child);
+        return n;
+    }
+
+    private static long hash(long hash, CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // 收集新的检查点, 并沿用复用部分末尾的哈希继续计算前缀哈希
+    private static final class Collector implements Paginator.CheckpointSink {
+        private final Source source;
+        private final List<Checkpoint> checkpoints;
+        private long hash;
+        private int hashed;
+        private int lastPage;
+
+        Collector(Source source, Resume resume) {
+            this.source = source;
+            this.checkpoints = (resume != null) ? new ArrayList<>(resume.checkpoints()) : new ArrayList<>();
+            this.hash = (resume != null) ? resume.at().prefixHash() : FNV_OFFSET;
+            this.hashed = (resume != null) ? resume.at().horizon() : 0;
+            this.lastPage = (resume != null) ? resume.at().page() : 0;
+        }
+
+        @Override
+        public void accept(int offset, int pages, int horizon) {
+            if (pages - lastPage < INTERVAL) return;
+            // 扩大 horizon 只会让校验更严格, 保证哈希区间单调递增
+            int end = Math.min(Math.max(horizon, hashed), source.text().length());
+            hash = source.hash(hash, hashed, end);
+            hashed = end;
+            lastPage = pages;
+            checkpoints.add(new Checkpoint(offset, pages, end, hash));
+        }
+    }
+}
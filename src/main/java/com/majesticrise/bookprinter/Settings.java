@@ -0,0 +1,146 @@
+package com.majesticrise.bookprinter;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Locale;
+
+// config.yml 的不可变快照: 加载或重载时一次性解析并整体替换, 命令与解析流程只读取字段
+public record Settings(
+        String mode,
+        String language,
+        boolean perPlayerLocale,
+        boolean autoReload,
+        long maxFileBytes,
+        Classic classic,
+        Modern modern,
+        Streaming streaming,
+        Volumes volumes,
+        Render render,
+        Cache cache,
+        Store store,
+        Jobs jobs,
+        Give give,
+        Network network,
+        int classicHash,
+        int modernHash) {
+
+    // width 策略的页尾由行宽与行数决定, 每页字符数不低于原版书页的 1024 字符上限, 只用于防止极窄字符撑出过长的页
+    static final int WIDTH_MIN_CHARS = 1024;
+
+    public record Classic(int maxChars, String splitStrategy, String pageMarker, int maxLines,
+                          boolean preserveNewlines, boolean trimTrailingEmptyPages,
+                          boolean allowAbsolutePaths, boolean allowSubdirs) {}
+
+    public record Modern(boolean trimWhitespace) {}
+
+    public record Streaming(boolean enabled, int chunkBytes, int maxPages, long maxFileBytes) {}
+
+    public record Volumes(boolean enabled, int pagesPerVolume, int maxVolumes, String container) {}
+
+    public record Render(int parallelism, int parallelThreshold) {}
+
+    public record Cache(boolean enabled, long maxWeightBytes) {}
+
+    public record Store(boolean enabled, boolean prewarm) {}
+
+    public record Jobs(int maxConcurrent, int queueSize, long cooldownMillis, long timeoutMillis, boolean virtualThreads) {}
+
+    public record Give(int batchSize, long tickBudgetNanos) {}
+
+    public record Network(boolean compactComponents, long maxBookBytes) {}
+
+    public static Settings from(ConfigurationSection config) {
+        String mode = "modern".equalsIgnoreCase(config.getString("Switch-mode", "classic")) ? "modern" : "classic";
+
+        int parallelism = config.getInt("render.parallelism", 0);
+        if (parallelism <= 0) {
+            parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+
+        String splitStrategy = config.getString("classic.split_strategy", "smart");
+        int maxChars = config.getInt("classic.max_chars_per_page", 165);
+        if ("width".equals(splitStrategy)) maxChars = Math.max(maxChars, WIDTH_MIN_CHARS);
+
+        return new Settings(
+                mode,
+                config.getString("language", "zh_CN"),
+                config.getBoolean("per_player_locale", true),
+                config.getBoolean("auto_reload", true),
+                config.getLong("max_file_bytes", 2097152),
+                new Classic(
+                        maxChars,
+                        splitStrategy,
+                        config.getString("classic.page_marker", "---PAGE---"),
+                        config.getInt("classic.max_lines_per_page", 14),
+                        config.getBoolean("classic.preserve_newlines", true),
+                        config.getBoolean("classic.trim_trailing_empty_pages", false),
+                        config.getBoolean("classic.allow_absolute_paths", false),
+                        config.getBoolean("classic.allow_subdirs", false)),
+                new Modern(config.getBoolean("modern.trim_whitespace", false)),
+                new Streaming(
+                        config.getBoolean("streaming.enabled", false),
+                        config.getInt("streaming.chunk_bytes", 65536),
+                        config.getInt("streaming.max_pages", 100),
+                        config.getLong("streaming.max_file_bytes", 67108864)),
+                new Volumes(
+                        config.getBoolean("volumes.enabled", false),
+                        Math.max(1, Math.min(BookVolumes.MAX_PAGES_PER_BOOK, config.getInt("volumes.pages_per_volume", 100))),
+                        Math.max(1, config.getInt("volumes.max_volumes", 20)),
+                        config.getString("volumes.container", "none").toLowerCase(Locale.ROOT)),
+                new Render(parallelism, config.getInt("render.parallel_threshold", 16)),
+                new Cache(
+                        config.getBoolean("cache.enabled", true),
+                        config.getLong("cache.max_weight_bytes", 33554432)),
+                new Store(
+                        config.getBoolean("store.enabled", true),
+                        config.getBoolean("store.prewarm", false)),
+                new Jobs(
+                        config.getInt("jobs.max_concurrent", 2),
+                        config.getInt("jobs.queue_size", 16),
+                        (long) (config.getDouble("jobs.cooldown_seconds", 3.0) * 1000L),
+                        (long) (config.getDouble("jobs.timeout_seconds", 120.0) * 1000L),
+                        config.getBoolean("jobs.virtual_threads", false)),
+                new Give(
+                        config.getInt("give.batch_size", 20),
+                        (long) (config.getDouble("give.tick_budget_ms", 2.0) * 1_000_000L)),
+                new Network(
+                        config.getBoolean("network.compact_components", true),
+                        config.getLong("network.max_book_bytes", 1048576)),
+                BookCache.settingsHash("classic", config),
+                BookCache.settingsHash("modern", config));
+    }
+
+    public boolean isModern() {
+        return "modern".equals(mode);
+    }
+
+    // 仅替换 classic 每页字符数, 书页体积超限时以更小的页重新分页
+    Settings withClassicMaxChars(int maxChars) {
+        Classic c = classic;
+        return copy(mode, new Classic(maxChars, c.splitStrategy(), c.pageMarker(), c.maxLines(), c.preserveNewlines(),
+                c.trimTrailingEmptyPages(), c.allowAbsolutePaths(), c.allowSubdirs()));
+    }
+
+    // 只切换核心模式, 其余设置不变; mode 为 "classic" 或 "modern"
+    Settings withMode(String mode) {
+        String normalized = "modern".equalsIgnoreCase(mode) ? "modern" : "classic";
+        if (normalized.equals(this.mode)) return this;
+        return copy(normalized, classic);
+    }
+
+    // with* 的唯一出口: 其余字段 (包括解析配置指纹) 原样保留, 新增字段时只需修改这里
+    private Settings copy(String mode, Classic classic) {
+        return new Settings(mode, language, perPlayerLocale, autoReload, maxFileBytes, classic, modern,
+                streaming, volumes, render, cache, store, jobs, give, network, classicHash, modernHash);
+    }
+
+    // 允许读取的文件上限: 开启流式读取时, 超过 max_file_bytes 的文件改为流式读取, 但仍不能超过 streaming.max_file_bytes
+    long fileLimit() {
+        return streaming.enabled() ? Math.max(maxFileBytes, streaming.maxFileBytes()) : maxFileBytes;
+    }
+
+    // 磁盘缓存与内存缓存使用的解析配置指纹
+    public int settingsHash(String mode) {
+        return "modern".equals(mode.toLowerCase(Locale.ROOT)) ? modernHash : classicHash;
+    }
+}
@@ -2,23 +2,21 @@ package com.majesticrise.bookprinter;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
-import org.bukkit.ChatColor;
 import org.bukkit.configuration.ConfigurationSection;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 
 public final class TextUtils {
 
     private TextUtils() {}
 
-    private static final Pattern LEGACY_HEX_PATTERN = Pattern.compile("&#([A-Fa-f0-9]{6})");
-    private static final Pattern MODERN_LINE_BREAK = Pattern.compile("\\\\Line-break\\\\");
+    static final String MODERN_PAGE_BREAK = "\\Line-break\\";
     private static final Pattern LEGACY_COLOR_SHORT = Pattern.compile("&([0-9a-fk-or])", Pattern.CASE_INSENSITIVE);
 
     private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
-    private static final LegacyComponentSerializer LEGACY_SERIALIZER = LegacyComponentSerializer.legacySection();
 
     private static final Map<String, String> LEGACY_MAP = Map.ofEntries(
             Map.entry("0", "<black>"), Map.entry("1", "<dark_blue>"),
@@ -34,221 +32,178 @@ public final class TextUtils {
             Map.entry("o", "<italic>"), Map.entry("r", "<reset>")
     );
 
+    // 按字符索引的 MiniMessage 标签表 (大小写均可), 供单遍扫描直接查表
+    private static final String[] LEGACY_TAGS = new String[128];
+
+    static {
+        for (Map.Entry<String, String> entry : LEGACY_MAP.entrySet()) {
+            char code = entry.getKey().charAt(0);
+            LEGACY_TAGS[code] = entry.getValue();
+            LEGACY_TAGS[Character.toUpperCase(code)] = entry.getValue();
+        }
+    }
+
     public static List<Component> parseModernMode(String rawText, ConfigurationSection config) {
-        List<Component> pages = new ArrayList<>();
+        return parseModernMode(rawText, Settings.from(config), PageRenderer.SEQUENTIAL);
+    }
+
+    public static List<Component> parseModernMode(String rawText, Settings settings, PageRenderer renderer) {
+        return renderer.render(modernPageInputs(rawText, settings), TextUtils::renderModernPage);
+    }
 
-        boolean trimWhitespace = config.getBoolean("modern.trim_whitespace", false);
-        if (trimWhitespace) {
+    // 分页阶段: 返回每页待反序列化的 MiniMessage 文本
+    static List<String> modernPageInputs(String rawText, Settings settings) {
+        List<String> pageInputs = new ArrayList<>();
+
+        if (settings.modern().trimWhitespace()) {
             rawText = rawText.trim();
         }
 
         rawText = rawText.replace("\r", "");
 
-        rawText = rawText.replaceAll("&#([A-Fa-f0-9]{6})", "<color:#$1>");
+        scanModernPages(rawText, pageInputs::add);
+        return pageInputs;
+    }
 
-        for (Map.Entry<String, String> entry : LEGACY_MAP.entrySet()) {
-            rawText = rawText.replace("&" + entry.getKey(), entry.getValue());
+    // 与 modernPageInputs 分页前的预处理一致
+    static String normalizeModern(String rawText, Settings settings) {
+        if (settings.modern().trimWhitespace()) rawText = rawText.trim();
+        return rawText.replace("\r", "");
+    }
+
+    static Component renderModernPage(String cleanContent) {
+        if (cleanContent.isEmpty()) {
+            return Component.empty();
         }
-        for (Map.Entry<String, String> entry : LEGACY_MAP.entrySet()) {
-            rawText = rawText.replace("&" + entry.getKey().toUpperCase(Locale.ROOT), entry.getValue());
+
+        try {
+            return MINI_MESSAGE.deserialize(cleanContent);
+        } catch (Exception e) {
+            return Component.text(cleanContent);
         }
+    }
 
-        String[] rawPages = MODERN_LINE_BREAK.split(rawText, -1);
+    // 单遍扫描: 同时处理 &#RRGGBB、& 颜色代码、\n 换行转义和 \Line-break\ 翻页,
+    // 每页去除首尾空白后交给 pageSink (空页传入 "")
+    static void scanModernPages(String text, Consumer<String> pageSink) {
+        scanModernPages(text, 0, pageSink, null);
+    }
 
-        for (String pageContent : rawPages) {
-            String cleanContent = pageContent.trim();
+    // 从 from 开始扫描 (须为文本开头或某个翻页标记之后), 每次翻页后将新页的起点交给 breakSink
+    static void scanModernPages(String text, int from, Consumer<String> pageSink, IntConsumer breakSink) {
+        final int len = text.length();
+        StringBuilder sb = new StringBuilder(Math.min(len - from, 1024));
+        ControlScanner scanner = new ControlScanner('\\', '&', '&').reset(text);
+        int significantLength = 0;
+        int i = from;
+
+        while (true) {
+            if (i >= len) {
+                sb.setLength(significantLength);
+                pageSink.accept(sb.toString());
+                return;
+            }
 
-            if (cleanContent.isEmpty()) {
-                pages.add(Component.empty());
+            // 两个控制字符之间的普通文本整段追加: 页首空白跳过, 末尾空白不计入有效长度
+            int next = scanner.next(i, len);
+            if (next > i) {
+                int start = i;
+                if (sb.length() == 0) {
+                    while (start < next && text.charAt(start) <= ' ') start++;
+                }
+                int last = next;
+                while (last > start && text.charAt(last - 1) <= ' ') last--;
+                sb.append(text, start, next);
+                if (last > start) significantLength = sb.length() - (next - last);
+                i = next;
                 continue;
             }
 
-            cleanContent = cleanContent.replace("\\n", "\n").replace("\\\\n", "\n");
-
-            try {
-                Component pageComponent = MINI_MESSAGE.deserialize(cleanContent);
-                pages.add(pageComponent);
-            } catch (Exception e) {
-                pages.add(Component.text(cleanContent));
+            char c = text.charAt(i);
+
+            if (c == '\\') {
+                if (text.startsWith(MODERN_PAGE_BREAK, i)) {
+                    sb.setLength(significantLength);
+                    pageSink.accept(sb.toString());
+                    sb.setLength(0);
+                    significantLength = 0;
+                    i += MODERN_PAGE_BREAK.length();
+                    if (breakSink != null) breakSink.accept(i);
+                    continue;
+                }
+                if (i + 1 < len && text.charAt(i + 1) == 'n') {
+                    sb.append('\n');
+                    i += 2;
+                } else {
+                    sb.append(c);
+                    i++;
+                }
+            } else if (c == '&' && i + 1 < len) {
+                char code = text.charAt(i + 1);
+                if (code == '#' && isHexRun(text, i + 2, 6)) {
+                    sb.append("<color:#").append(text, i + 2, i + 8).append('>');
+                    i += 8;
+                } else if (code < LEGACY_TAGS.length && LEGACY_TAGS[code] != null) {
+                    sb.append(LEGACY_TAGS[code]);
+                    i += 2;
+                } else {
+                    sb.append(c);
+                    i++;
+                }
+            } else {
+                sb.append(c);
+                i++;
             }
+            significantLength = sb.length();
         }
-        return pages;
     }
 
-    public static List<Component> parseClassicMode(String rawText, ConfigurationSection config) {
-        ConfigurationSection classic = config.getConfigurationSection("classic");
-        int maxChars = (classic != null) ? classic.getInt("max_chars_per_page", 165) : 165;
-        String strategy = (classic != null) ? classic.getString("split_strategy", "smart") : "smart";
-        String pageMarker = (classic != null) ? classic.getString("page_marker", "---PAGE---") : "---PAGE---";
-        int maxLines = (classic != null) ? classic.getInt("max_lines_per_page", 14) : 14;
-        boolean preserveNewlines = (classic != null) ? classic.getBoolean("preserve_newlines", true) : true;
-        boolean trimEmptyPages = (classic != null) ? classic.getBoolean("trim_trailing_empty_pages", false) : false;
-
-        rawText = rawText.replace("\r", "");
+    private static boolean isHexRun(CharSequence text, int from, int count) {
+        if (from + count > text.length()) return false;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!hex) return false;
+        }
+        return true;
+    }
 
-        rawText = ChatColor.translateAlternateColorCodes('&', rawText);
+    public static List<Component> parseClassicMode(String rawText, ConfigurationSection config) {
+        return parseClassicMode(rawText, Settings.from(config), PageRenderer.SEQUENTIAL);
+    }
 
-        String hexProcessed = convertHexTags(rawText);
+    public static List<Component> parseClassicMode(String rawText, Settings settings, PageRenderer renderer) {
+        return renderer.render(classicPageInputs(rawText, settings), ClassicText.Page::render);
+    }
 
-        List<String> pageTexts = splitToPagesSafe(hexProcessed, maxChars, strategy, pageMarker, maxLines, preserveNewlines, trimEmptyPages);
+    // 分页阶段: 颜色代码解析为样式后只对可见文本分页, 返回每页的区间
+    static List<ClassicText.Page> classicPageInputs(String rawText, Settings settings) {
+        ClassicText text = ClassicText.parse(rawText);
 
-        List<Component> pages = new ArrayList<>();
-        for (String text : pageTexts) {
-            pages.add(LEGACY_SERIALIZER.deserialize(text));
-        }
+        List<ClassicText.Page> pages = new ArrayList<>();
+        Paginator[] paginator = new Paginator[1];
+        paginator[0] = newClassicPaginator(settings.classic(), (source, start, end) ->
+                pages.add(text.page(start, end, paginator[0].lineBreaks())));
+        paginator[0].bold(text.bold()).paginate(text.text());
         return pages;
     }
 
-    private static String convertHexTags(String text) {
-        if (text == null || !text.contains("&#")) return text;
-        StringBuffer sb = new StringBuffer();
-        java.util.regex.Matcher m = LEGACY_HEX_PATTERN.matcher(text);
-        while (m.find()) {
-            String hex = m.group(1);
-            StringBuilder hexFormat = new StringBuilder("§x");
-            for (char c : hex.toCharArray()) {
-                hexFormat.append("§").append(c);
-            }
-            m.appendReplacement(sb, hexFormat.toString());
-        }
-        m.appendTail(sb);
-        return sb.toString();
+    static Paginator newClassicPaginator(Settings.Classic classic, Paginator.PageSink sink) {
+        return new Paginator(classic.maxChars(), classic.splitStrategy(), classic.pageMarker(), classic.maxLines(),
+                classic.preserveNewlines(), classic.trimTrailingEmptyPages(), sink);
     }
 
     public static List<String> splitToPagesSafe(String text, int maxChars, String strategy, String pageMarker, int maxLines, boolean preserveNewlines, boolean trimTrailingEmptyPages) {
-        LinkedList<String> pages = new LinkedList<>();
+        List<String> pages = new ArrayList<>();
         if (text == null) {
             pages.add("");
             return pages;
         }
 
-        if (maxChars <= 0) maxChars = 1;
-        final int thresholdCp = Math.max(3, maxChars / 8);
-        String usedStrategy = (strategy == null) ? "smart" : strategy;
-
-        switch (usedStrategy) {
-            case "marker": {
-                if (pageMarker == null || pageMarker.isEmpty()) {
-                    pages.addAll(splitToPagesSafe(text, maxChars, "smart", pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages));
-                    break;
-                }
-                String[] segments = text.split(Pattern.quote(pageMarker), -1);
-                for (String seg : segments) {
-                    if (seg.isEmpty()) {
-                        pages.add("");
-                        continue;
-                    }
-                    List<String> segPages = splitToPagesSafe(seg, maxChars, "smart", pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages);
-                    pages.addAll(segPages);
-                }
-                break;
-            }
-
-            case "lines": {
-                if (maxLines <= 0) maxLines = 1;
-                String[] lines = text.split("\n", -1);
-                StringBuilder sb = new StringBuilder();
-                int lineCount = 0;
-                for (int i = 0; i < lines.length; i++) {
-                    String line = lines[i];
-                    if (sb.length() != 0) sb.append("\n");
-                    sb.append(line);
-                    lineCount++;
-                    boolean isLastLine = (i == lines.length - 1);
-                    if (lineCount >= maxLines || isLastLine) {
-                        String pageText = sb.toString();
-                        if (pageText.codePointCount(0, pageText.length()) <= maxChars) {
-                            String finalPage = preserveNewlines ? pageText : trimTrailingNewlines(pageText);
-                            finalPage = truncateByCodePoints(finalPage, maxChars);
-                            pages.add(finalPage);
-                        } else {
-                            pages.addAll(splitToPagesSafe(pageText, maxChars, "smart", pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages));
-                        }
-                        sb.setLength(0);
-                        lineCount = 0;
-                    }
-                }
-                break;
-            }
-
-            case "hard": {
-                int pos = 0;
-                int len = text.length();
-                while (pos < len) {
-                    int remainingCp = text.codePointCount(pos, len);
-                    int takeCp = Math.min(maxChars, remainingCp);
-                    int end = text.offsetByCodePoints(pos, takeCp);
-                    String piece = text.substring(pos, end);
-                    String finalPiece = preserveNewlines ? piece : trimTrailingNewlines(piece);
-                    finalPiece = truncateByCodePoints(finalPiece, maxChars);
-                    pages.add(finalPiece);
-                    pos = end;
-                }
-                break;
-            }
-
-            case "smart":
-            default: {
-                if (text.isEmpty()) {
-                    pages.add("");
-                    break;
-                }
-                int p = 0;
-                int l = text.length();
-                while (p < l) {
-                    int remainingCp = text.codePointCount(p, l);
-                    int takeCp = Math.min(maxChars, remainingCp);
-                    int end = text.offsetByCodePoints(p, takeCp);
-
-                    if (end >= l) {
-                        String last = text.substring(p, l);
-                        String finalLast = preserveNewlines ? last : trimTrailingNewlines(last);
-                        finalLast = truncateByCodePoints(finalLast, maxChars);
-                        pages.add(finalLast);
-                        break;
-                    }
-
-                    int lastNewline = lastIndexOfChar(text, '\n', end - 1);
-                    if (lastNewline >= p) {
-                        int gapCp = text.codePointCount(lastNewline + 1, end);
-                        if (gapCp <= thresholdCp) {
-                            String part = text.substring(p, lastNewline + 1);
-                            String finalPart = preserveNewlines ? part : trimTrailingNewlines(part);
-                            finalPart = truncateByCodePoints(finalPart, maxChars);
-                            pages.add(finalPart);
-                            p = lastNewline + 1;
-                            continue;
-                        }
-                    }
-
-                    int lastSpace = lastIndexOfChar(text, ' ', end - 1);
-                    if (lastSpace >= p) {
-                        int gapCp = text.codePointCount(lastSpace + 1, end);
-                        if (gapCp <= thresholdCp) {
-                            String part = text.substring(p, lastSpace + 1);
-                            String finalPart = preserveNewlines ? part : trimTrailingNewlines(part);
-                            finalPart = truncateByCodePoints(finalPart, maxChars);
-                            pages.add(finalPart);
-                            p = lastSpace + 1;
-                            continue;
-                        }
-                    }
-
-                    String part = text.substring(p, end);
-                    String finalPart = preserveNewlines ? part : trimTrailingNewlines(part);
-                    finalPart = truncateByCodePoints(finalPart, maxChars);
-                    pages.add(finalPart);
-                    p = end;
-                }
-                break;
-            }
-        }
-
-        if (trimTrailingEmptyPages) {
-            while (!pages.isEmpty() && pages.getLast().isEmpty()) pages.removeLast();
-            if (pages.isEmpty()) pages.add("");
-        }
-
+        Paginator[] paginator = new Paginator[1];
+        paginator[0] = new Paginator(maxChars, strategy, pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages,
+                (source, start, end) -> pages.add(Paginator.withLineBreaks(source, 0, start, end, paginator[0].lineBreaks())));
+        paginator[0].paginate(text);
         return pages;
     }
 
@@ -285,26 +240,4 @@ public final class TextUtils {
         if (title.isEmpty()) title = "Book";
         return title;
     }
-
-    private static int lastIndexOfChar(String s, char c, int fromIndexInclusive) {
-        if (s == null || s.isEmpty()) return -1;
-        if (fromIndexInclusive >= s.length()) fromIndexInclusive = s.length() - 1;
-        if (fromIndexInclusive < 0) return -1;
-        for (int i = fromIndexInclusive; i >= 0; i--) {
-            if (s.charAt(i) == c) return i;
-        }
-        return -1;
-    }
-
-    private static String trimTrailingNewlines(String s) {
-        if (s == null || s.isEmpty()) return s;
-        int end = s.length();
-        while (end > 0) {
-            char ch = s.charAt(end - 1);
-            if (ch == '\n' || ch == '\r') end--;
-            else break;
-        }
-        if (end == s.length()) return s;
-        return s.substring(0, end);
-    }
 }
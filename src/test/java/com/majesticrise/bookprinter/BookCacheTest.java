@@ -0,0 +1,94 @@
+package com.majesticrise.bookprinter;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookCacheTest {
+
+    private static final Settings SETTINGS = Settings.from(new YamlConfiguration());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unchangedFileKeepsItsKey() throws Exception {
+        Path file = Files.writeString(dir.resolve("book.txt"), "first version");
+        BookCache.Key key = BookCache.keyOf(file.toFile(), "classic", SETTINGS);
+
+        BookCache.Snapshot snapshot = BookCache.read(key);
+        assertEquals(key, snapshot.key());
+        assertArrayEquals("first version".getBytes(StandardCharsets.UTF_8), snapshot.bytes());
+    }
+
+    // 取得 key 之后文件被改写: 内容必须以新版本的属性作为 key, 不能缓存在旧 key 下
+    @Test
+    void fileRewrittenAfterStatIsKeyedByTheVersionRead() throws Exception {
+        Path file = Files.writeString(dir.resolve("book.txt"), "first version");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000L));
+        BookCache.Key stale = BookCache.keyOf(file.toFile(), "classic", SETTINGS);
+
+        Files.writeString(file, "second, longer version");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000L));
+
+        BookCache.Snapshot snapshot = BookCache.read(stale);
+        assertNotEquals(stale, snapshot.key());
+        assertEquals(BookCache.keyOf(file.toFile(), "classic", SETTINGS), snapshot.key());
+        assertEquals(2_000_000L, snapshot.key().modified());
+        assertArrayEquals("second, longer version".getBytes(StandardCharsets.UTF_8), snapshot.bytes());
+    }
+
+    // 只改修改时间时磁盘缓存以内容哈希确认条目仍然有效; 内容变化但大小相同时不命中
+    @Test
+    void storeChecksContentWhenOnlyTheTimestampChanged() throws Exception {
+        BookStore store = new BookStore(dir.toFile(), Logger.getLogger("test"));
+        Path file = Files.writeString(dir.resolve("book.txt"), "same size A");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000L));
+        BookCache.Key key = BookCache.keyOf(file.toRealPath().toFile(), "classic", SETTINGS);
+        store.save(key, Files.readAllBytes(file), new Repagination.Compiled(List.of(), List.of()));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000L));
+        BookCache.Key touched = BookCache.keyOf(file.toRealPath().toFile(), "classic", SETTINGS);
+        assertTrue(store.contains(touched));
+
+        Files.writeString(file, "same size B");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(3_000_000L));
+        BookCache.Key rewritten = BookCache.keyOf(file.toRealPath().toFile(), "classic", SETTINGS);
+        assertFalse(store.contains(rewritten));
+        // 以旧属性查询时, 读到的内容已属于另一个版本
+        assertFalse(store.contains(touched));
+    }
+
+    // 组件压缩改变书页内容: 切换后内存缓存的 key 与磁盘缓存条目都不能再命中, 重载时据此清空内存缓存
+    @Test
+    void compactComponentsIsPartOfTheFingerprint() throws Exception {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("network.compact_components", false);
+        Settings uncompacted = Settings.from(config);
+        assertNotEquals(SETTINGS.classicHash(), uncompacted.classicHash());
+        assertNotEquals(SETTINGS.modernHash(), uncompacted.modernHash());
+
+        BookStore store = new BookStore(dir.toFile(), Logger.getLogger("test"));
+        Path file = Files.writeString(dir.resolve("book.txt"), "content");
+        BookCache.Key compacted = BookCache.keyOf(file.toRealPath().toFile(), "classic", SETTINGS);
+        BookCache.Key plain = BookCache.keyOf(file.toRealPath().toFile(), "classic", uncompacted);
+        assertNotEquals(compacted, plain);
+
+        store.save(compacted, Files.readAllBytes(file), new Repagination.Compiled(List.of(), List.of()));
+        assertTrue(store.contains(compacted));
+        assertFalse(store.contains(plain));
+    }
+}
@@ -0,0 +1,89 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookStreamReaderTest {
+
+    private static final Settings SETTINGS = Settings.from(new YamlConfiguration());
+
+    @TempDir
+    Path dir;
+
+    // codeScale 越大颜色代码越稀疏; 单页中的标签过多时 MiniMessage 解析失败, 整页退回纯文本
+    private static String randomModernText(SplittableRandom random, int length, boolean markers, int codeScale) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int pick = random.nextInt(100);
+            if (pick >= 14 && pick < 18 && random.nextInt(codeScale) != 0) pick = 99;
+            if (pick < 12) sb.append(' ');
+            else if (pick < 14) sb.append("\\n");
+            else if (pick < 17) sb.append('&').append("0123456789abcdeflmor".charAt(random.nextInt(20)));
+            else if (pick < 18) sb.append("&#").append(String.format("%06x", random.nextInt(0x1000000)));
+            else if (pick < 22) sb.appendCodePoint(0x1F600 + random.nextInt(64));
+            else if (markers && pick < 23) sb.append(TextUtils.MODERN_PAGE_BREAK);
+            else if (pick < 50) sb.append((char) (0x4E00 + random.nextInt(0x5000)));
+            else sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    private static String plain(List<Component> pages) {
+        StringBuilder sb = new StringBuilder();
+        for (Component page : pages) sb.append(PlainTextComponentSerializer.plainText().serialize(page));
+        return sb.toString().replaceAll("\\s", "");
+    }
+
+    @Test
+    void modernPagesMatchInMemoryParser() throws Exception {
+        String text = randomModernText(new SplittableRandom(4L), 20_000, true, 1);
+        Path file = Files.writeString(dir.resolve("book.txt"), text);
+
+        List<Component> streamed = BookStreamReader.read(file, "modern", SETTINGS, 1024, Integer.MAX_VALUE);
+        assertEquals(TextUtils.parseModernMode(text, SETTINGS, PageRenderer.SEQUENTIAL), streamed);
+    }
+
+    @Test
+    void modernTextWithoutPageBreaksIsSplitAtPageSizedBoundaries() throws Exception {
+        String text = randomModernText(new SplittableRandom(9L), 5 * BookStreamReader.MAX_PAGE_CHARS, false, 50);
+        Path file = Files.writeString(dir.resolve("long.txt"), text);
+
+        List<Component> streamed = BookStreamReader.read(file, "modern", SETTINGS, 4096, Integer.MAX_VALUE);
+        assertTrue(streamed.size() >= 5, () -> "pages: " + streamed.size());
+        for (Component page : streamed) {
+            int length = PlainTextComponentSerializer.plainText().serialize(page).length();
+            assertTrue(length <= BookStreamReader.MAX_PAGE_CHARS, () -> "page length " + length);
+        }
+        // 强制翻页不拆开代理对与颜色代码: 去除空白后的可见文本恰好是去掉代码与转义的原文
+        // (整段作为一页时 MiniMessage 会放弃解析部分标签, 不能直接与 parseModernMode 比较)
+        String visible = text.replaceAll("&#[0-9a-f]{6}|&[0-9a-flmor]|\\\\n|\\s", "");
+        assertEquals(visible, plain(streamed));
+    }
+
+    @Test
+    void forcedBreakKeepsCodesEscapesAndSurrogatePairsTogether() {
+        String tail = "&#12ab34😀&l\\nb";
+        for (int offset = 0; offset <= tail.length(); offset++) {
+            String text = "a".repeat(100 - offset) + tail + "c".repeat(20);
+            int cut = BookStreamReader.forcedBreak(text, 100);
+            assertTrue(cut > 90 && cut <= 100, "cut " + cut);
+            assertFalse(Character.isLowSurrogate(text.charAt(cut)), "offset " + offset);
+            String head = text.substring(0, cut);
+            assertFalse(head.endsWith("\\") || head.matches("(?s).*&(#[0-9a-f]{0,5})?"), "offset " + offset + ": " + head);
+        }
+        // 末尾 1/8 内有空白时在空白之后翻页
+        assertEquals(95, BookStreamReader.forcedBreak("a".repeat(94) + " " + "b".repeat(10), 100));
+    }
+}
@@ -0,0 +1,177 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.ShadowColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComponentCompactorTest {
+
+    private static final MiniMessage MINI = MiniMessage.miniMessage();
+
+    // 客户端实际显示的单个字符: 父组件的样式逐项沿用到子组件, 书页的根样式为空, 未设置的格式等于关闭
+    private record Cell(int codePoint, TextColor color, ShadowColor shadow, Set<TextDecoration> decorations,
+                        ClickEvent click, HoverEvent<?> hover, String insertion, Key font) {}
+
+    // 独立于 Flattener 的参照展开, 逐字段处理继承
+    private static List<Cell> render(Component page) {
+        List<Cell> cells = new ArrayList<>();
+        render(page, Style.empty(), cells);
+        return cells;
+    }
+
+    private static void render(Component node, Style parent, List<Cell> cells) {
+        Style own = node.style();
+        Style.Builder style = Style.style()
+                .color(own.color() != null ? own.color() : parent.color())
+                .shadowColor(own.shadowColor() != null ? own.shadowColor() : parent.shadowColor())
+                .clickEvent(own.clickEvent() != null ? own.clickEvent() : parent.clickEvent())
+                .hoverEvent(own.hoverEvent() != null ? own.hoverEvent() : parent.hoverEvent())
+                .insertion(own.insertion() != null ? own.insertion() : parent.insertion())
+                .font(own.font() != null ? own.font() : parent.font());
+        for (TextDecoration decoration : TextDecoration.values()) {
+            TextDecoration.State state = own.decoration(decoration);
+            style.decoration(decoration, state != TextDecoration.State.NOT_SET ? state : parent.decoration(decoration));
+        }
+        Style resolved = style.build();
+
+        ((TextComponent) node).content().codePoints().forEach(cp -> {
+            Set<TextDecoration> on = EnumSet.noneOf(TextDecoration.class);
+            for (TextDecoration decoration : TextDecoration.values()) {
+                if (resolved.decoration(decoration) == TextDecoration.State.TRUE) on.add(decoration);
+            }
+            cells.add(new Cell(cp, resolved.color(), resolved.shadowColor(), on, resolved.clickEvent(),
+                    resolved.hoverEvent(), resolved.insertion(), resolved.font()));
+        });
+        for (Component child : node.children()) render(child, resolved, cells);
+    }
+
+    private static Component assertRoundTrip(Component page) {
+        Component compacted = ComponentCompactor.compact(page);
+        assertEquals(render(page), render(compacted));
+        return compacted;
+    }
+
+    @Test
+    void gradientAndRainbowKeepPerCharacterColors() {
+        Component gradient = MINI.deserialize("<gradient:#ff0000:#0000ff>Gradient 渐变文字</gradient> 正文");
+        Component rainbow = MINI.deserialize("<rainbow>rainbow <italic>彩虹</italic> 😀😀</rainbow><rainbow:!>reverse</rainbow>");
+        for (Component page : List.of(gradient, rainbow)) {
+            Component compacted = assertRoundTrip(page);
+            assertTrue(ComponentCompactor.jsonLength(compacted) < ComponentCompactor.jsonLength(page));
+        }
+        // 加粗包着渐变: 展开后每个字符都要重复 bold, 比原来更长, 保留原样
+        Component boldGradient = MINI.deserialize("<bold>标题 <gradient:#ff0000:#0000ff>Gradient 渐变文字</gradient></bold> 正文");
+        assertSame(boldGradient, assertRoundTrip(boldGradient));
+        // 代理对不会因逐字符着色被拆开
+        List<Cell> cells = render(ComponentCompactor.compact(rainbow));
+        assertTrue(cells.stream().anyMatch(cell -> cell.codePoint() == 0x1F600));
+    }
+
+    @Test
+    void clickHoverInsertionAndFontAreInheritedAndMerged() {
+        Component page = MINI.deserialize("<click:run_command:'/bp a'>点击<hover:show_text:'<red>提示'>悬停</hover>后缀</click>"
+                + "<insert:插入>插入文本</insert><font:uniform>字体<b>加粗</b></font>"
+                + "<click:open_url:'https://example.com'>链接</click><click:open_url:'https://example.org'>另一个</click>");
+        Component compacted = assertRoundTrip(page);
+
+        // 同一点击事件下样式相同的相邻文本合并为一段, 事件不同的相邻文本保持分开
+        List<String> contents = compacted.children().stream().map(c -> ((TextComponent) c).content()).toList();
+        assertTrue(contents.contains("链接") && contents.contains("另一个"), contents::toString);
+        Component sameClick = Component.text()
+                .clickEvent(ClickEvent.runCommand("/bp a"))
+                .append(Component.text("a"), Component.text("b").insertion(null), Component.text("c"))
+                .build();
+        Component merged = assertRoundTrip(sameClick);
+        assertEquals(Component.text("abc").clickEvent(ClickEvent.runCommand("/bp a")), merged);
+    }
+
+    // 展开后各片段都挂在无样式的根组件下, 显式的 false 与未设置显示相同; 根样式不为空时这一前提才会失效
+    @Test
+    void explicitFalseDecorationEqualsUnset() {
+        Component bold = Component.text()
+                .decoration(TextDecoration.BOLD, true)
+                .append(Component.text("粗"), Component.text("细").decoration(TextDecoration.BOLD, false))
+                .build();
+        Component page = Component.text()
+                .append(bold, Component.text("x").decoration(TextDecoration.ITALIC, false), Component.text("y"))
+                .build();
+        Component compacted = assertRoundTrip(page);
+
+        assertEquals(Style.empty(), compacted.style());
+        assertEquals(List.of(
+                Component.text("粗").decoration(TextDecoration.BOLD, true),
+                Component.text("细xy")), compacted.children());
+        // MiniMessage 的 <!bold> 生成显式的 false
+        assertRoundTrip(MINI.deserialize("<bold>a<!bold>b</!bold>c</bold>d<!italic>e"));
+    }
+
+    @Test
+    void singlePartShortcutReturnsTheOnlySegment() {
+        Component page = Component.text()
+                .color(NamedTextColor.RED)
+                .append(Component.text("a"), Component.text("b").decoration(TextDecoration.ITALIC, false),
+                        Component.text("c", NamedTextColor.RED))
+                .build();
+        Component compacted = assertRoundTrip(page);
+        assertEquals(Component.text("abc", NamedTextColor.RED), compacted);
+        assertTrue(compacted.children().isEmpty());
+
+        assertEquals(Component.empty(), ComponentCompactor.compact(Component.text().append(Component.text("")).build()));
+    }
+
+    @Test
+    void pagesWithNonTextComponentsAreLeftUnchanged() {
+        Component page = Component.text("a").append(Component.translatable("block.minecraft.stone"));
+        assertSame(page, ComponentCompactor.compact(page));
+    }
+
+    @Test
+    void randomStyledTreesRoundTrip() {
+        SplittableRandom random = new SplittableRandom(19L);
+        for (int i = 0; i < 500; i++) {
+            Component page = randomTree(random, 0);
+            Component compacted = assertRoundTrip(page);
+            assertFalse(ComponentCompactor.jsonLength(compacted) > ComponentCompactor.jsonLength(page),
+                    () -> MINI.serialize(page));
+        }
+    }
+
+    private static Component randomTree(SplittableRandom random, int depth) {
+        TextComponent.Builder node = Component.text().content(random.nextInt(3) == 0 ? "" : "文" + (char) ('a' + random.nextInt(26)));
+        if (random.nextInt(3) == 0) node.color(List.of(NamedTextColor.RED, NamedTextColor.BLUE).get(random.nextInt(2)));
+        if (random.nextInt(6) == 0) node.shadowColor(ShadowColor.shadowColor(0x80000000));
+        if (random.nextInt(4) == 0) {
+            TextDecoration decoration = TextDecoration.values()[random.nextInt(TextDecoration.values().length)];
+            node.decoration(decoration, TextDecoration.State.values()[random.nextInt(3)]);
+        }
+        if (random.nextInt(5) == 0) node.clickEvent(ClickEvent.runCommand("/c" + random.nextInt(2)));
+        if (random.nextInt(6) == 0) node.hoverEvent(HoverEvent.showText(Component.text("h" + random.nextInt(2))));
+        if (random.nextInt(8) == 0) node.insertion("i" + random.nextInt(2));
+        if (random.nextInt(8) == 0) node.font(Key.key("uniform"));
+        if (depth < 4) {
+            int children = random.nextInt(4);
+            for (int c = 0; c < children; c++) node.append(randomTree(random, depth + 1));
+        }
+        return node.build();
+    }
+}
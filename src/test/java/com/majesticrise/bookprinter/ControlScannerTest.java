@@ -0,0 +1,63 @@
+package com.majesticrise.bookprinter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// 向量实现只在 mvn -P vector 下编译并加载孵化模块, 普通构建中跳过
+class ControlScannerTest {
+
+    private static final String CONTROLS = "&§\r\n\\< ";
+
+    private static String randomText(SplittableRandom random, int length, int density) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(density) == 0) sb.append(CONTROLS.charAt(random.nextInt(CONTROLS.length())));
+            else sb.append((char) (random.nextBoolean() ? 'a' + random.nextInt(26) : 0x4E00 + random.nextInt(0x5000)));
+        }
+        return sb.toString();
+    }
+
+    private static boolean vectorScanCompiled() {
+        try {
+            Class.forName("com.majesticrise.bookprinter.VectorScan");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void vectorScanMatchesScalarScan() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), "jdk.incubator.vector not loaded");
+        assumeTrue(vectorScanCompiled(), "VectorScan not compiled (mvn -P vector)");
+        // 自检失败时扫描器会静默退回标量, 这里要求向量实现确实启用
+        assertTrue(ControlScanner.vectorAvailable());
+        SplittableRandom random = new SplittableRandom(24L);
+        for (int trial = 0; trial < 300; trial++) {
+            // 控制字符由密到疏, 长度跨越多个 4096 字符的窗口
+            int density = 1 << random.nextInt(14);
+            String text = randomText(random, random.nextInt(20_000), density);
+            CharSequence source = random.nextBoolean() ? text : new StringBuilder(text);
+            ControlScanner vector = new ControlScanner('&', '§', '\r', true).reset(source);
+            ControlScanner scalar = new ControlScanner('&', '§', '\r', false).reset(source);
+
+            // 与解析器相同的顺序扫描
+            for (int i = 0; i < text.length(); ) {
+                int expected = scalar.next(i, text.length());
+                assertEquals(expected, vector.next(i, text.length()), () -> "trial density " + density);
+                i = expected + 1;
+            }
+            // 任意起止位置, 包括窗口之前的回退
+            for (int k = 0; k < 50; k++) {
+                int from = random.nextInt(text.length() + 1);
+                int to = from + random.nextInt(text.length() - from + 1);
+                assertEquals(scalar.next(from, to), vector.next(from, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.majesticrise.bookprinter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryWatcherTest {
+
+    private static final Logger LOGGER = Logger.getLogger("test");
+
+    @TempDir
+    Path dir;
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    // 文件索引与配置监听注册同一个目录: 事件类型取并集, 各自只收到自己的事件, 一方关闭后另一方不受影响
+    @Test
+    void indexAndConfigWatcherShareOneWatchService() throws Exception {
+        Files.createDirectories(dir.resolve("novels"));
+        BlockingQueue<String> reloads = new LinkedBlockingQueue<>();
+        try (DirectoryWatcher watcher = new DirectoryWatcher(LOGGER).start()) {
+            FileIndex index = new FileIndex(watcher, dir.toFile(), true, LOGGER).start();
+            ConfigWatcher config = new ConfigWatcher(watcher, dir.toFile(), reloads::add).start();
+            await(index::isReady);
+
+            Files.writeString(dir.resolve("a.txt"), "a");
+            Files.writeString(dir.resolve("novels/b.txt"), "b");
+            await(() -> index.resolve("a.txt") != null && index.resolve("novels/b.txt") != null);
+
+            // 连续多次保存只触发一次重载
+            for (int i = 0; i < 5; i++) Files.writeString(dir.resolve("config.yml"), "v: " + i);
+            assertEquals("config.yml", reloads.poll(10, TimeUnit.SECONDS));
+            assertNull(reloads.poll(1, TimeUnit.SECONDS));
+
+            Files.delete(dir.resolve("a.txt"));
+            await(() -> index.resolve("a.txt") == null);
+
+            index.close();
+            Files.writeString(dir.resolve("Language-en_US.yml"), "k: v");
+            assertEquals("Language-en_US.yml", reloads.poll(10, TimeUnit.SECONDS));
+            Files.writeString(dir.resolve("c.txt"), "c");
+            Thread.sleep(200);
+            assertNull(index.resolve("c.txt"));
+
+            // 配置监听关闭后, 新的索引仍可注册同一目录
+            config.close();
+            FileIndex next = new FileIndex(watcher, dir.toFile(), false, LOGGER).start();
+            await(next::isReady);
+            assertNotNull(next.resolve("c.txt"));
+            Files.writeString(dir.resolve("d.txt"), "d");
+            await(() -> next.resolve("d.txt") != null);
+            Files.writeString(dir.resolve("config.yml"), "v: changed");
+            assertNull(reloads.poll(1, TimeUnit.SECONDS));
+            next.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobAdmissionTest {
+
+    private static final BookCache.Key KEY = new BookCache.Key("text:test", 0L, 4, "classic", 0);
+
+    // 与 BookPrinter.runGeneration 相同的登记、执行与收尾流程
+    private static boolean submit(JobAdmission admission, JobManager manager, JobManager.Job job,
+                                  Map<Long, JobManager.Reason> stopped, JobManager.Task<?> task) {
+        boolean accepted = admission.submit(() -> {
+            try {
+                manager.enter(job);
+                task.run(job);
+            } catch (JobManager.CancelledException e) {
+                stopped.put(job.id, e.reason);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                manager.exit(job);
+            }
+        });
+        if (!accepted) manager.exit(job);
+        return accepted;
+    }
+
+    @Test
+    void virtualThreadsLimitComputeToMaxConcurrent() throws Exception {
+        JobAdmission admission = new JobAdmission(2, 16, 0, true);
+        JobManager manager = new JobManager();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger virtual = new AtomicInteger();
+        Map<Long, JobManager.Reason> stopped = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            JobManager.Job job = manager.register(JobManager.Kind.API, "job" + i, null, 0);
+            assertTrue(submit(admission, manager, job, stopped, j -> admission.compute(j, () -> {
+                if (Thread.currentThread().isVirtual()) virtual.incrementAndGet();
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return null;
+            })));
+        }
+        admission.close();
+        assertTrue(admission.awaitTermination(10_000));
+        assertEquals(2, peak.get());
+        assertEquals(10, virtual.get());
+        assertEquals(0, manager.size());
+        assertTrue(stopped.isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rejectsWhenRunningAndQueuedSlotsAreFull(boolean virtualThreads) throws Exception {
+        JobAdmission admission = new JobAdmission(1, 1, 0, virtualThreads);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(admission.submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(admission.submit(() -> awaitQuietly(release)));
+        assertFalse(admission.submit(() -> {}));
+        assertEquals(1, admission.rejected());
+        release.countDown();
+        admission.close();
+        assertTrue(admission.awaitTermination(5_000));
+    }
+
+    @Test
+    void cancelledJobStopsWaitingForComputeSlot() throws Exception {
+        JobAdmission admission = new JobAdmission(1, 4, 0, true);
+        JobManager manager = new JobManager();
+        Map<Long, JobManager.Reason> stopped = new ConcurrentHashMap<>();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        JobManager.Job holder = manager.register(JobManager.Kind.API, "holder", null, 0);
+        submit(admission, manager, holder, stopped, job -> admission.compute(job, () -> {
+            holding.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger ran = new AtomicInteger();
+        JobManager.Job waiting = manager.register(JobManager.Kind.API, "waiting", null, 0);
+        submit(admission, manager, waiting, stopped, job -> admission.compute(job, ran::incrementAndGet));
+        waiting.cancel(JobManager.Reason.CANCELLED);
+
+        // 计算名额仍被占用, 取消的任务在轮询时退出
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (manager.get(waiting.id) != null && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(JobManager.Reason.CANCELLED, stopped.get(waiting.id));
+        assertEquals(0, ran.get());
+
+        release.countDown();
+        admission.close();
+        assertTrue(admission.awaitTermination(5_000));
+    }
+
+    @Test
+    void followerRetriesWhenCoalescedLeaderIsCancelled() throws Exception {
+        JobAdmission admission = new JobAdmission(2, 4, 0, true);
+        JobManager manager = new JobManager();
+        Map<Long, JobManager.Reason> stopped = new ConcurrentHashMap<>();
+        List<Component> pages = List.of(Component.text("page"));
+        CountDownLatch leading = new CountDownLatch(1);
+        AtomicReference<List<Component>> followerResult = new AtomicReference<>();
+
+        JobManager.Job leader = manager.register(JobManager.Kind.API, "leader", null, 0);
+        submit(admission, manager, leader, stopped, job -> admission.coalesce(KEY, job, () -> {
+            leading.countDown();
+            while (true) {
+                job.check(-1);
+                Thread.sleep(5);
+            }
+        }));
+        assertTrue(leading.await(5, TimeUnit.SECONDS));
+
+        JobManager.Job follower = manager.register(JobManager.Kind.API, "follower", null, 0);
+        submit(admission, manager, follower, stopped, job -> {
+            followerResult.set(admission.coalesce(KEY, job, () -> pages));
+            return null;
+        });
+        // 等跟随者开始等待领头任务的结果后再取消领头任务
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.coalesced() == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+        leader.cancel(JobManager.Reason.CANCELLED);
+
+        admission.close();
+        assertTrue(admission.awaitTermination(5_000));
+        assertEquals(Map.of(leader.id, JobManager.Reason.CANCELLED), stopped);
+        assertEquals(pages, followerResult.get());
+        assertEquals(1, admission.coalesced());
+    }
+
+    // 与 BookPrinter.onDisable 相同: 取消全部任务、关闭队列并等待; 执行中与仍在排队的任务都以 SHUTDOWN 结束
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shutdownStopsRunningAndQueuedJobs(boolean virtualThreads) throws Exception {
+        JobAdmission admission = new JobAdmission(2, 8, 0, virtualThreads);
+        JobManager manager = new JobManager();
+        Map<Long, JobManager.Reason> stopped = new ConcurrentHashMap<>();
+        CountDownLatch running = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+
+        for (int i = 0; i < 6; i++) {
+            JobManager.Job job = manager.register(JobManager.Kind.PRINT, "book" + i + ".txt", null, 0);
+            assertTrue(submit(admission, manager, job, stopped, j -> admission.compute(j, () -> {
+                running.countDown();
+                // 输入没有尽头, 只能在分页器每交付一页时的检查点结束
+                Paginator paginator = new Paginator(16, "smart", null, 14, true, false, (source, start, end) -> true).cancel(j);
+                while (paginator.feed("word ".repeat(100))) {
+                    Thread.onSpinWait();
+                }
+                return completed.incrementAndGet();
+            })));
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        manager.cancelAll(JobManager.Reason.SHUTDOWN);
+        admission.close();
+        assertTrue(admission.awaitTermination(5_000));
+        assertEquals(0, completed.get());
+        assertEquals(6, stopped.size());
+        assertTrue(stopped.values().stream().allMatch(JobManager.Reason.SHUTDOWN::equals));
+        assertEquals(0, manager.size());
+        assertEquals(6, manager.cancelledCount(JobManager.Reason.SHUTDOWN));
+        assertFalse(admission.submit(() -> {}));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobManagerTest {
+
+    @Test
+    void jobCancelledWhileQueuedStopsOnEnter() {
+        JobManager manager = new JobManager();
+        JobManager.Job job = manager.register(JobManager.Kind.PRINT, "book.txt", null, 0);
+        job.cancel(JobManager.Reason.DISCONNECTED);
+        // 只记录第一次取消的原因
+        job.cancel(JobManager.Reason.SHUTDOWN);
+
+        JobManager.CancelledException e = assertThrows(JobManager.CancelledException.class, () -> manager.enter(job));
+        assertEquals(JobManager.Reason.DISCONNECTED, e.reason);
+        manager.exit(job);
+        assertEquals(0, manager.size());
+        assertEquals(1, manager.cancelledCount(JobManager.Reason.DISCONNECTED));
+    }
+
+    @Test
+    void expiredDeadlineCancelsWithTimeout() throws Exception {
+        JobManager manager = new JobManager();
+        JobManager.Job job = manager.register(JobManager.Kind.API, "slow", null, 1);
+        Thread.sleep(5);
+        JobManager.CancelledException e = assertThrows(JobManager.CancelledException.class, () -> job.check(-1));
+        assertEquals(JobManager.Reason.TIMEOUT, e.reason);
+    }
+
+    @Test
+    void paginatorReportsProgressAndStopsAtNextPage() {
+        JobManager.Job job = new JobManager().register(JobManager.Kind.PRINT, "book.txt", null, 0);
+        List<Integer> delivered = new ArrayList<>();
+        Paginator paginator = new Paginator(10, "hard", null, 14, true, false, (source, start, end) -> {
+            delivered.add(start);
+            if (delivered.size() == 50) job.cancel(JobManager.Reason.CANCELLED);
+            return true;
+        }).cancel(job);
+
+        assertThrows(JobManager.CancelledException.class, () -> paginator.paginate("x".repeat(10_000)));
+        assertEquals(50, delivered.size());
+        assertEquals(50, job.pages());
+    }
+
+    @Test
+    void renderWorkersObserveCancellation() {
+        JobManager.Job job = new JobManager().register(JobManager.Kind.PRINT, "book.txt", null, 0);
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) inputs.add(i);
+        AtomicInteger rendered = new AtomicInteger();
+
+        // 渲染在 ForkJoinPool 的线程上执行, 取消状态只能通过显式传入的 job 看到
+        try (PageRenderer renderer = new PageRenderer(4, 1)) {
+            assertThrows(JobManager.CancelledException.class, () -> renderer.render(inputs, i -> {
+                if (rendered.incrementAndGet() == 100) job.cancel(JobManager.Reason.CANCELLED);
+                return Component.text(i);
+            }, job));
+        }
+        assertTrue(rendered.get() < inputs.size(), () -> "rendered " + rendered.get());
+    }
+
+    @Test
+    void repaginationThreadsTokenThroughPaginateAndRender() {
+        Settings settings = Settings.from(new org.bukkit.configuration.file.YamlConfiguration());
+        Repagination.Source source = Repagination.prepare("word ".repeat(5_000), settings);
+        JobManager.Job job = new JobManager().register(JobManager.Kind.PRINT, "book.txt", null, 0);
+
+        Repagination.Plan<?> plan = Repagination.paginate(source, settings, null, job);
+        assertTrue(job.pages() > 0);
+        job.cancel(JobManager.Reason.CANCELLED);
+        assertThrows(JobManager.CancelledException.class, () -> plan.render(PageRenderer.SEQUENTIAL, c -> c, job));
+        assertThrows(JobManager.CancelledException.class, () -> Repagination.paginate(source, settings, null, job));
+    }
+}
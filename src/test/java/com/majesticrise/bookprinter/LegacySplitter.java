@@ -0,0 +1,179 @@
+package com.majesticrise.bookprinter;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// 改写前的 TextUtils.splitToPagesSafe (逐字保留), 作为 Paginator 差分测试的参照实现
+final class LegacySplitter {
+
+    private LegacySplitter() {}
+
+    static List<String> split(String text, int maxChars, String strategy, String pageMarker, int maxLines, boolean preserveNewlines, boolean trimTrailingEmptyPages) {
+        LinkedList<String> pages = new LinkedList<>();
+        if (text == null) {
+            pages.add("");
+            return pages;
+        }
+
+        if (maxChars <= 0) maxChars = 1;
+        final int thresholdCp = Math.max(3, maxChars / 8);
+        String usedStrategy = (strategy == null) ? "smart" : strategy;
+
+        switch (usedStrategy) {
+            case "marker": {
+                if (pageMarker == null || pageMarker.isEmpty()) {
+                    pages.addAll(split(text, maxChars, "smart", pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages));
+                    break;
+                }
+                String[] segments = text.split(Pattern.quote(pageMarker), -1);
+                for (String seg : segments) {
+                    if (seg.isEmpty()) {
+                        pages.add("");
+                        continue;
+                    }
+                    List<String> segPages = split(seg, maxChars, "smart", pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages);
+                    pages.addAll(segPages);
+                }
+                break;
+            }
+
+            case "lines": {
+                if (maxLines <= 0) maxLines = 1;
+                String[] lines = text.split("\n", -1);
+                StringBuilder sb = new StringBuilder();
+                int lineCount = 0;
+                for (int i = 0; i < lines.length; i++) {
+                    String line = lines[i];
+                    if (sb.length() != 0) sb.append("\n");
+                    sb.append(line);
+                    lineCount++;
+                    boolean isLastLine = (i == lines.length - 1);
+                    if (lineCount >= maxLines || isLastLine) {
+                        String pageText = sb.toString();
+                        if (pageText.codePointCount(0, pageText.length()) <= maxChars) {
+                            String finalPage = preserveNewlines ? pageText : trimTrailingNewlines(pageText);
+                            finalPage = truncateByCodePoints(finalPage, maxChars);
+                            pages.add(finalPage);
+                        } else {
+                            pages.addAll(split(pageText, maxChars, "smart", pageMarker, maxLines, preserveNewlines, trimTrailingEmptyPages));
+                        }
+                        sb.setLength(0);
+                        lineCount = 0;
+                    }
+                }
+                break;
+            }
+
+            case "hard": {
+                int pos = 0;
+                int len = text.length();
+                while (pos < len) {
+                    int remainingCp = text.codePointCount(pos, len);
+                    int takeCp = Math.min(maxChars, remainingCp);
+                    int end = text.offsetByCodePoints(pos, takeCp);
+                    String piece = text.substring(pos, end);
+                    String finalPiece = preserveNewlines ? piece : trimTrailingNewlines(piece);
+                    finalPiece = truncateByCodePoints(finalPiece, maxChars);
+                    pages.add(finalPiece);
+                    pos = end;
+                }
+                break;
+            }
+
+            case "smart":
+            default: {
+                if (text.isEmpty()) {
+                    pages.add("");
+                    break;
+                }
+                int p = 0;
+                int l = text.length();
+                while (p < l) {
+                    int remainingCp = text.codePointCount(p, l);
+                    int takeCp = Math.min(maxChars, remainingCp);
+                    int end = text.offsetByCodePoints(p, takeCp);
+
+                    if (end >= l) {
+                        String last = text.substring(p, l);
+                        String finalLast = preserveNewlines ? last : trimTrailingNewlines(last);
+                        finalLast = truncateByCodePoints(finalLast, maxChars);
+                        pages.add(finalLast);
+                        break;
+                    }
+
+                    int lastNewline = lastIndexOfChar(text, '\n', end - 1);
+                    if (lastNewline >= p) {
+                        int gapCp = text.codePointCount(lastNewline + 1, end);
+                        if (gapCp <= thresholdCp) {
+                            String part = text.substring(p, lastNewline + 1);
+                            String finalPart = preserveNewlines ? part : trimTrailingNewlines(part);
+                            finalPart = truncateByCodePoints(finalPart, maxChars);
+                            pages.add(finalPart);
+                            p = lastNewline + 1;
+                            continue;
+                        }
+                    }
+
+                    int lastSpace = lastIndexOfChar(text, ' ', end - 1);
+                    if (lastSpace >= p) {
+                        int gapCp = text.codePointCount(lastSpace + 1, end);
+                        if (gapCp <= thresholdCp) {
+                            String part = text.substring(p, lastSpace + 1);
+                            String finalPart = preserveNewlines ? part : trimTrailingNewlines(part);
+                            finalPart = truncateByCodePoints(finalPart, maxChars);
+                            pages.add(finalPart);
+                            p = lastSpace + 1;
+                            continue;
+                        }
+                    }
+
+                    String part = text.substring(p, end);
+                    String finalPart = preserveNewlines ? part : trimTrailingNewlines(part);
+                    finalPart = truncateByCodePoints(finalPart, maxChars);
+                    pages.add(finalPart);
+                    p = end;
+                }
+                break;
+            }
+        }
+
+        if (trimTrailingEmptyPages) {
+            while (!pages.isEmpty() && pages.getLast().isEmpty()) pages.removeLast();
+            if (pages.isEmpty()) pages.add("");
+        }
+
+        return pages;
+    }
+
+    private static String truncateByCodePoints(String s, int maxCodePoints) {
+        if (s == null) return null;
+        if (maxCodePoints <= 0) return "";
+        int cp = s.codePointCount(0, s.length());
+        if (cp <= maxCodePoints) return s;
+        int endIndex = s.offsetByCodePoints(0, maxCodePoints);
+        return s.substring(0, endIndex);
+    }
+
+    private static int lastIndexOfChar(String s, char c, int fromIndexInclusive) {
+        if (s == null || s.isEmpty()) return -1;
+        if (fromIndexInclusive >= s.length()) fromIndexInclusive = s.length() - 1;
+        if (fromIndexInclusive < 0) return -1;
+        for (int i = fromIndexInclusive; i >= 0; i--) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static String trimTrailingNewlines(String s) {
+        if (s == null || s.isEmpty()) return s;
+        int end = s.length();
+        while (end > 0) {
+            char ch = s.charAt(end - 1);
+            if (ch == '\n' || ch == '\r') end--;
+            else break;
+        }
+        if (end == s.length()) return s;
+        return s.substring(0, end);
+    }
+}
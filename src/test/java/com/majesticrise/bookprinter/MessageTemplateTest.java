@@ -0,0 +1,91 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageTemplateTest {
+
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacySection();
+
+    @TempDir
+    Path dir;
+
+    // 与旧版 getRaw + LegacyComponentSerializer 的结果逐字符比较颜色 (旧版不解析 §x 十六进制颜色, 此处不涉及)
+    private static void assertSameColors(Component expected, Component actual) {
+        assertEquals(colors(ComponentCompactor.compact(expected)), colors(ComponentCompactor.compact(actual)));
+    }
+
+    private static List<String> colors(Component component) {
+        List<Component> parts = component.children().isEmpty() ? List.of(component) : component.children();
+        return parts.stream()
+                .map(part -> PlainTextComponentSerializer.plainText().serialize(part) + "|" + part.color() + "|" + decorations(part))
+                .toList();
+    }
+
+    private static Set<TextDecoration> decorations(Component part) {
+        Set<TextDecoration> on = EnumSet.noneOf(TextDecoration.class);
+        part.decorations().forEach((decoration, state) -> {
+            if (state == TextDecoration.State.TRUE) on.add(decoration);
+        });
+        return on;
+    }
+
+    @Test
+    void placeholderValuesKeepLegacyColorCodes() {
+        MessageTemplate template = MessageTemplate.compile("§eFile: §f{file} §7(Pages: §e{pages}§7)");
+        Map<String, String> plain = Map.of("file", "book.txt", "pages", "42");
+        Map<String, String> colored = Map.of("file", "§6§lgold.txt", "pages", "§c42");
+
+        for (Map<String, String> values : List.of(plain, colored)) {
+            String raw = template.raw(values);
+            assertSameColors(LEGACY.deserialize(raw), template.component(values));
+        }
+        // 值中的代码延续到其后的模板文本, 直到模板自己的下一个颜色代码
+        Component component = template.component(Map.of("file", "§6gold.txt", "pages", "1"));
+        assertEquals("File: gold.txt (Pages: 1)", PlainTextComponentSerializer.plainText().serialize(component));
+        assertEquals(List.of(
+                "File: |" + NamedTextColor.YELLOW + "|" + Set.of(),
+                "gold.txt |" + NamedTextColor.GOLD + "|" + Set.of(),
+                "(Pages: |" + NamedTextColor.GRAY + "|" + Set.of(),
+                "1|" + NamedTextColor.YELLOW + "|" + Set.of(),
+                ")|" + NamedTextColor.GRAY + "|" + Set.of()), colors(ComponentCompactor.compact(component)));
+    }
+
+    @Test
+    void hexColorsInTemplateSurviveColoredValues() {
+        MessageTemplate template = MessageTemplate.compile("§x§1§2§a§b§3§4Hex {value}");
+        Component component = template.component(Map.of("value", "§cred"));
+        Component compacted = ComponentCompactor.compact(component);
+        assertEquals(TextColor.color(0x12ab34), compacted.children().get(0).color());
+        assertEquals(NamedTextColor.RED, compacted.children().get(1).color());
+    }
+
+    @Test
+    void loadsCataloguesFromFolder() throws Exception {
+        Files.writeString(dir.resolve("Language-en_US.yml"), "prefix: '&7[BP] '\nhello: '&aHello {name}'\n");
+        Files.writeString(dir.resolve("Language-zh_CN.yml"), "prefix: '&7[BP] '\nhello: '&a你好 {name}'\n");
+        LanguageManager manager = new LanguageManager(Logger.getLogger("test"));
+
+        manager.load(dir.toFile(), "zh_CN", true);
+        assertEquals("§7[BP] §a你好 Steve", manager.getRaw("hello", Map.of("name", "Steve")));
+        // 默认语言的文件不存在时退回 en_US
+        manager.load(dir.toFile(), "fr_FR", true);
+        assertEquals("§7[BP] §aHello Steve", manager.getRaw("hello", Map.of("name", "Steve")));
+    }
+}
@@ -0,0 +1,106 @@
+package com.majesticrise.bookprinter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 同一语料分别交给改写前的实现与 Paginator (经由 splitToPagesSafe), 逐页比较结果
+class PaginatorDifferentialTest {
+
+    private static final String[] STRATEGIES = {"smart", "lines", "hard", "marker"};
+    private static final String[] MARKERS = {"[PAGE]", "\n\n", "&", "📖", "", null};
+
+    // 空格、换行、回车、颜色代码、代理对 (表情与扩展区汉字) 与翻页标记都以较高频率出现, 以覆盖各种断点边界
+    private static String randomText(SplittableRandom random, int length, String marker) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int pick = random.nextInt(100);
+            if (pick < 10) {
+                sb.append(' ');
+            } else if (pick < 16) {
+                sb.append('\n');
+            } else if (pick < 18) {
+                sb.append("\r\n");
+            } else if (pick < 22) {
+                sb.append('&').append("0123456789abcdefklmnor".charAt(random.nextInt(22)));
+            } else if (pick < 24) {
+                sb.append("&#").append(String.format("%06x", random.nextInt(0x1000000)));
+            } else if (pick < 30) {
+                sb.appendCodePoint(random.nextBoolean() ? 0x1F600 + random.nextInt(64) : 0x20000 + random.nextInt(0x1000));
+            } else if (pick < 32 && marker != null && !marker.isEmpty()) {
+                sb.append(marker);
+            } else if (pick < 60) {
+                sb.append((char) (0x4E00 + random.nextInt(0x5000)));
+            } else {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertSamePages(String text, int maxChars, String strategy, String marker, int maxLines,
+                                        boolean preserveNewlines, boolean trimTrailingEmptyPages) {
+        List<String> expected = LegacySplitter.split(text, maxChars, strategy, marker, maxLines, preserveNewlines, trimTrailingEmptyPages);
+        List<String> actual = TextUtils.splitToPagesSafe(text, maxChars, strategy, marker, maxLines, preserveNewlines, trimTrailingEmptyPages);
+        assertEquals(expected, actual, () -> String.format("strategy=%s maxChars=%d maxLines=%d marker=%s preserve=%b trim=%b text=%s",
+                strategy, maxChars, maxLines, marker, preserveNewlines, trimTrailingEmptyPages, escape(text)));
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        text.codePoints().forEach(cp -> {
+            if (cp >= 0x20 && cp < 0x7F) sb.appendCodePoint(cp);
+            else sb.append(String.format("\\u{%x}", cp));
+        });
+        return sb.toString();
+    }
+
+    @Test
+    void randomCorpusMatchesLegacySplitter() {
+        SplittableRandom random = new SplittableRandom(20240601L);
+        for (int trial = 0; trial < 10_000; trial++) {
+            String marker = MARKERS[random.nextInt(MARKERS.length)];
+            int length = (trial % 100 == 0) ? random.nextInt(8_000) : random.nextInt(600);
+            String text = randomText(random, length, marker);
+            int maxChars = (random.nextInt(4) == 0) ? random.nextInt(-2, 6) : 1 + random.nextInt(300);
+            int maxLines = random.nextInt(-1, 20);
+            for (String strategy : STRATEGIES) {
+                assertSamePages(text, maxChars, strategy, marker, maxLines, random.nextBoolean(), random.nextBoolean());
+            }
+        }
+    }
+
+    @Test
+    void edgeCasesMatchLegacySplitter() {
+        String[] texts = {
+                "", " ", "\n", "\n\n\n", "\r\n\r\n", "[PAGE]", "[PAGE][PAGE]", "a[PAGE]", "[PAGE]b",
+                "😀😀😀", "a😀b c\nd", "&a&lbold &rplain", "&#12ab34hex",
+                "word ".repeat(200), "line\n".repeat(100), "汉字".repeat(500), "x".repeat(1000) + "\n",
+        };
+        for (String text : texts) {
+            for (String strategy : STRATEGIES) {
+                for (int maxChars : new int[]{-1, 0, 1, 2, 3, 8, 24, 256}) {
+                    for (int maxLines : new int[]{0, 1, 3, 14}) {
+                        for (int flags = 0; flags < 4; flags++) {
+                            assertSamePages(text, maxChars, strategy, "[PAGE]", maxLines, (flags & 1) != 0, (flags & 2) != 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void unknownOrNullStrategyFallsBackToSmart() {
+        SplittableRandom random = new SplittableRandom(7L);
+        for (int trial = 0; trial < 500; trial++) {
+            String text = randomText(random, random.nextInt(400), null);
+            int maxChars = 1 + random.nextInt(100);
+            assertSamePages(text, maxChars, null, null, 5, true, true);
+            assertSamePages(text, maxChars, "bogus", null, 5, false, false);
+        }
+    }
+}
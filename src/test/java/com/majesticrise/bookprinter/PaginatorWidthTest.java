@@ -0,0 +1,126 @@
+package com.majesticrise.bookprinter;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaginatorWidthTest {
+
+    @TempDir
+    Path dir;
+
+    private static Settings widthSettings() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("classic.split_strategy", "width");
+        return Settings.from(config);
+    }
+
+    // 客户端的排版: 行宽超出时在最后一个空格处换行, 没有空格时在当前字符前换行, 换行符另起一行. 返回每行的文本
+    private static List<String> clientLines(String page) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        int width = 0;
+        for (int i = 0; i < page.length(); ) {
+            int cp = page.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp == '\n') {
+                lines.add(line.toString());
+                line.setLength(0);
+                width = 0;
+                continue;
+            }
+            int advance = GlyphWidths.advance(cp, false);
+            if (width > 0 && width + advance > GlyphWidths.BOOK_WIDTH) {
+                int space = line.lastIndexOf(" ");
+                if (space >= 0) {
+                    lines.add(line.substring(0, space + 1));
+                    line.delete(0, space + 1);
+                } else {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                }
+                width = line.codePoints().map(c -> GlyphWidths.advance(c, false)).sum();
+            }
+            line.appendCodePoint(cp);
+            width += advance;
+        }
+        lines.add(line.toString());
+        return lines;
+    }
+
+    // 汉字之间夹着句读与引号, 连续的避头尾标点不超过 2 个, 保证换行点总能在回退范围内找到
+    private static String randomCjkText(SplittableRandom random, int length) {
+        String[] tokens = {"，", "。", "。」", "」", "「", "、", "！"};
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append((char) (0x4E00 + random.nextInt(0x5000)));
+            if (random.nextInt(3) == 0) {
+                String token = tokens[random.nextInt(tokens.length)];
+                if (token.equals("「")) sb.append(token).append((char) (0x4E00 + random.nextInt(0x5000)));
+                else sb.append(token);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void defaultSettingsFillChinesePagesWithoutBlankLines() {
+        Settings settings = widthSettings();
+        assertTrue(settings.classic().maxChars() >= Settings.WIDTH_MIN_CHARS);
+
+        // 每行 12 个汉字, 每页 14 行; 默认的 165 字上限不再截断整页
+        List<ClassicText.Page> pages = TextUtils.classicPageInputs("汉".repeat(1000), settings);
+        ClassicText.Page first = pages.get(0);
+        assertEquals(12 * 14, first.end() - first.start());
+        List<String> lines = clientLines(PlainTextComponentSerializer.plainText().serialize(first.render()));
+        assertEquals(14, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.length() == 12), lines::toString);
+    }
+
+    @Test
+    void noLineStartsWithClosingPunctuation() {
+        SplittableRandom random = new SplittableRandom(23L);
+        for (int trial = 0; trial < 200; trial++) {
+            String text = randomCjkText(random, 200 + random.nextInt(2000));
+            List<String> pages = TextUtils.splitToPagesSafe(text, Settings.WIDTH_MIN_CHARS, "width", null, 14, true, false);
+
+            // 插入的换行符之外与原文一致
+            assertEquals(text, String.join("", pages).replace("\n", ""));
+            for (int p = 0; p < pages.size(); p++) {
+                List<String> lines = clientLines(pages.get(p));
+                String where = "page " + (p + 1) + " " + lines;
+                assertTrue(lines.size() <= 14, where);
+                if (p < pages.size() - 1) assertEquals(14, lines.size(), where);
+                for (int l = 0; l < lines.size(); l++) {
+                    String line = lines.get(l);
+                    assertFalse(line.isEmpty(), where);
+                    assertFalse(GlyphWidths.noBreakBefore(line.codePointAt(0)), where);
+                    assertFalse(GlyphWidths.noBreakAfter(line.codePointBefore(line.length())), where);
+                }
+                if (p > 0) assertFalse(GlyphWidths.noBreakBefore(pages.get(p).codePointAt(0)), where);
+            }
+        }
+    }
+
+    @Test
+    void streamedPagesMatchInMemoryParser() throws Exception {
+        Settings settings = widthSettings();
+        String text = "&l加粗「标题」&r" + randomCjkText(new SplittableRandom(5L), 40_000);
+        Path file = Files.writeString(dir.resolve("book.txt"), text);
+
+        List<Component> streamed = BookStreamReader.read(file, "classic", settings, 1024, Integer.MAX_VALUE);
+        assertEquals(TextUtils.parseClassicMode(text, settings, PageRenderer.SEQUENTIAL), streamed);
+    }
+}
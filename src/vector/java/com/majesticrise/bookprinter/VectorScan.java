@@ -0,0 +1,37 @@
+package com.majesticrise.bookprinter;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// ControlScanner 的 Vector API 实现; 只在 vector 构建配置 (mvn -P vector) 中编译,
+// 运行时由 ControlScanner 在 jdk.incubator.vector 模块已加载时通过 MethodHandle 引用
+final class VectorScan {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private VectorScan() {}
+
+    // [from, to) 中第一个等于 a、b 或 c 的位置, 没有时返回 to
+    static int indexOf(char[] chars, int from, int to, char a, char b, char c) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(Math.max(0, to - from));
+        for (; i < bound; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> hit = v.compare(VectorOperators.EQ, (short) a)
+                    .or(v.compare(VectorOperators.EQ, (short) b))
+                    .or(v.compare(VectorOperators.EQ, (short) c));
+            if (hit.anyTrue()) return i + hit.firstTrue();
+        }
+        for (; i < to; i++) {
+            char ch = chars[i];
+            if (ch == a || ch == b || ch == c) return i;
+        }
+        return to;
+    }
+
+    static String describe() {
+        return "vector (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+}